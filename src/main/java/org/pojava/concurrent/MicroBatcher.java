@@ -0,0 +1,237 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.BatchProcessor;
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A MicroBatcher accepts items one at a time, as a Processor, and hands them to a
+ * BatchProcessor in batches. A batch is sent once it reaches its full size, or once its
+ * oldest item has waited the maximum latency, whichever comes first.
+ * <p/>
+ * Items wait in a bounded buffer drained by a single background thread, so batches are
+ * processed in order of arrival. When the buffer is full, producers block until the batch
+ * processor catches up, so a slow consumer slows its producers rather than exhausting memory.
+ * A batch that throws is logged and counted, and later batches proceed.
+ *
+ * @author John Pile
+ */
+public class MicroBatcher<T> implements Processor<T> {
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.MicroBatcher");
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BatchProcessor<T> target;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<T> buffer;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread flusher;
+    /**
+     * Producers between checking running and finishing their offer.
+     */
+    private final StripedCounter offering = new StripedCounter();
+    private volatile boolean running = true;
+    private volatile boolean stopping;
+
+    /**
+     * Construct a batcher and start its flushing thread.
+     *
+     * @param target     processor receiving each batch
+     * @param batchSize  most items in a batch
+     * @param maxLatency longest an item waits before its batch is sent
+     * @param unit       unit of maxLatency
+     * @param capacity   most items buffered before producers block
+     */
+    public MicroBatcher(BatchProcessor<T> target, int batchSize, long maxLatency,
+                        TimeUnit unit, int capacity) {
+        if (batchSize < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Batch size and capacity must be at least one.");
+        }
+        this.target = target;
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = unit.toNanos(maxLatency);
+        this.buffer = new ArrayBlockingQueue<T>(capacity);
+        this.flusher = new Thread(new Runnable() {
+            public void run() {
+                flushLoop();
+            }
+        }, "MicroBatcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Accept an item, blocking while the buffer is full.
+     *
+     * @param obj non-null item
+     * @return 1 if accepted, or 0 if the batcher is closed or the caller was interrupted
+     */
+    public int process(T obj) {
+        try {
+            return offer(obj, Long.MAX_VALUE, TimeUnit.NANOSECONDS) ? 1 : 0;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * Accept an item, waiting no longer than a timeout while the buffer is full.
+     *
+     * @param obj     non-null item
+     * @param timeout longest to wait for room
+     * @param unit    unit of timeout
+     * @return true if accepted, false if closed or the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean offer(T obj, long timeout, TimeUnit unit) throws InterruptedException {
+        if (obj == null) {
+            throw new IllegalArgumentException("Cannot batch a null item.");
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        offering.increment();
+        try {
+            // Wait in slices so that a producer blocked on a full buffer notices the close.
+            while (running) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (buffer.offer(obj, Math.min(remaining, IDLE_NANOS), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            offering.add(-1);
+        }
+    }
+
+    /**
+     * Number of items waiting to be batched.
+     */
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    /**
+     * Sum of the results returned by the batch processor.
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Number of batches sent, including those that failed.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Number of batches whose processing threw an exception.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Stop accepting items, send those already buffered, and stop the flushing thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread to finish
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        // A producer that saw running before it turned false may still be offering. Let it
+        // finish, so its item is buffered before the flusher makes its final drain.
+        while (offering.sum() != 0) {
+            Thread.yield();
+        }
+        stopping = true;
+        flusher.join();
+        // Send anything left behind by a flusher that was interrupted.
+        List<T> rest = new ArrayList<T>(batchSize);
+        while (buffer.drainTo(rest, batchSize) > 0) {
+            flush(rest);
+        }
+    }
+
+    private void flushLoop() {
+        List<T> batch = new ArrayList<T>(batchSize);
+        while (!stopping) {
+            try {
+                T first = buffer.poll(IDLE_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < batchSize) {
+                    if (buffer.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    T next = remaining > 0 ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // Treat an interrupt as a close, sending whatever has been gathered.
+                running = false;
+                flush(batch);
+                break;
+            }
+            flush(batch);
+        }
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+        try {
+            total.addAndGet(target.process(batch));
+        } catch (Throwable ex) {
+            // Survive an Error too, or producers would block on a buffer nobody drains.
+            failed.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Failed to process batch of " + batch.size() + ".", ex);
+        } finally {
+            batch.clear();
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An MpscRingQueue is a bounded, lock-free queue for any number of producing threads and a
+ * single consuming thread. It never blocks: offer fails when the queue is full, and poll
+ * returns null when it is empty.
+ * <p/>
+ * Each slot of the ring carries a sequence number telling producers and the consumer whose
+ * turn it is, so a producer claims a slot with a single compare-and-set, and the consumer
+ * needs none.
+ *
+ * @author John Pile
+ */
+public class MpscRingQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * Construct an empty queue.
+     *
+     * @param capacity minimum number of elements held, rounded up to a power of two
+     */
+    public MpscRingQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be from 1 to 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<E>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element, from any thread.
+     *
+     * @param element non-null element
+     * @return false if the queue was full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("A queue cannot hold null.");
+        }
+        while (true) {
+            long pos = tail.get();
+            int index = (int) pos & mask;
+            long turn = sequences.get(index) - pos;
+            if (turn == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if (turn < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element. Only one thread may poll.
+     *
+     * @return oldest element, or null if the queue is empty
+     */
+    public E poll() {
+        long pos = head;
+        int index = (int) pos & mask;
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, pos + mask + 1);
+        head = pos + 1;
+        return element;
+    }
+
+    /**
+     * True if no element is waiting. This is only a momentary view while producers are active.
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Approximate number of elements waiting.
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * Number of elements the queue can hold.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+}
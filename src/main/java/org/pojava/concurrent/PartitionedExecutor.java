@@ -0,0 +1,270 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.Processor;
+import org.pojava.util.HashingTool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A PartitionedExecutor processes items in parallel while keeping the order of items sharing
+ * a key, such as the events of one customer.
+ * <p/>
+ * Each item's key is hashed onto one of several lanes. Every lane has its own lock-free queue
+ * and a single thread draining it, so items of one key are processed one at a time, in the
+ * order they were submitted, while different keys proceed in parallel. There is no lock shared
+ * between lanes. A lane whose queue is full makes its producers wait, leaving other lanes
+ * unaffected.
+ * <p/>
+ * An item whose processing throws, even with an Error, is logged and counted, and its lane
+ * moves on to the next item. Every item accepted before close() is processed.
+ *
+ * @author John Pile
+ */
+public class PartitionedExecutor<T> {
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.PartitionedExecutor");
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Processor<? super T> processor;
+    private final KeyExtractor<? super T> keys;
+    private final Lane<T>[] lanes;
+    private final StripedCounter total = new StripedCounter();
+    private final StripedCounter processed = new StripedCounter();
+    private final StripedCounter failed = new StripedCounter();
+
+    /**
+     * Producers between checking running and finishing their offer.
+     */
+    private final StripedCounter offering = new StripedCounter();
+    private volatile boolean running = true;
+    private volatile boolean stopping;
+
+    /**
+     * Extracts the key whose items must be processed in order.
+     */
+    public interface KeyExtractor<T> {
+
+        Object keyOf(T item);
+
+    }
+
+    /**
+     * Construct an executor and start one thread per lane.
+     *
+     * @param processor    processor applied to each item, from its lane's thread
+     * @param keys         extracts the ordering key of an item
+     * @param lanes        number of lanes, and of threads
+     * @param laneCapacity most items waiting in each lane, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public PartitionedExecutor(Processor<? super T> processor, KeyExtractor<? super T> keys,
+                               int lanes, int laneCapacity) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("An executor needs at least one lane.");
+        }
+        this.processor = processor;
+        this.keys = keys;
+        this.lanes = (Lane<T>[]) new Lane<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane<T>(laneCapacity);
+        }
+        for (int i = 0; i < lanes; i++) {
+            final Lane<T> lane = this.lanes[i];
+            lane.thread = new Thread(new Runnable() {
+                public void run() {
+                    drainLoop(lane);
+                }
+            }, "PartitionedExecutor-" + i);
+            lane.thread.setDaemon(true);
+            lane.thread.start();
+        }
+    }
+
+    /**
+     * Lane to which a key is assigned.
+     *
+     * @param key ordering key, which may be null
+     * @return offset of the lane
+     */
+    public int laneOf(Object key) {
+        int hash = key == null ? 0 : HashingTool.mix(key.hashCode());
+        return (int) ((hash & 0xffffffffL) % lanes.length);
+    }
+
+    /**
+     * Queue an item for processing, waiting while its lane is full.
+     *
+     * @param item non-null item
+     * @return false if the executor is closed or the caller was interrupted
+     */
+    public boolean submit(T item) {
+        Lane<T> lane = lanes[laneOf(keys.keyOf(item))];
+        offering.increment();
+        try {
+            while (running) {
+                if (lane.queue.offer(item)) {
+                    lane.wake();
+                    return true;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+            return false;
+        } finally {
+            offering.add(-1);
+        }
+    }
+
+    /**
+     * Queue an item for processing unless its lane is full.
+     *
+     * @param item non-null item
+     * @return false if the executor is closed or the lane is full
+     */
+    public boolean offer(T item) {
+        Lane<T> lane = lanes[laneOf(keys.keyOf(item))];
+        offering.increment();
+        try {
+            if (running && lane.queue.offer(item)) {
+                lane.wake();
+                return true;
+            }
+            return false;
+        } finally {
+            offering.add(-1);
+        }
+    }
+
+    /**
+     * Number of items waiting in a lane.
+     *
+     * @param lane offset of the lane
+     */
+    public int getDepth(int lane) {
+        return lanes[lane].queue.size();
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Sum of the results returned by the processor.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Number of items processed, whether or not they failed.
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * Number of items whose processing threw an exception.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Stop accepting items, process those already queued, and stop the lane threads.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads to finish
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        // A producer that saw running before it turned false may still be offering. Let it
+        // finish, so its item is queued before the lanes make their final drain.
+        while (offering.sum() != 0) {
+            Thread.yield();
+        }
+        stopping = true;
+        for (Lane<T> lane : lanes) {
+            LockSupport.unpark(lane.thread);
+        }
+        for (Lane<T> lane : lanes) {
+            lane.thread.join();
+        }
+    }
+
+    private void drainLoop(Lane<T> lane) {
+        while (!stopping) {
+            if (!drain(lane)) {
+                lane.sleeping = true;
+                // Check again after announcing sleep, so a wake between the two is not lost.
+                if (lane.queue.isEmpty() && !stopping) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+                lane.sleeping = false;
+            }
+        }
+        drain(lane);
+    }
+
+    /**
+     * Process every queued item of a lane, returning false if there were none.
+     */
+    private boolean drain(Lane<T> lane) {
+        boolean any = false;
+        T item;
+        while ((item = lane.queue.poll()) != null) {
+            any = true;
+            try {
+                total.add(processor.process(item));
+            } catch (Throwable ex) {
+                // Even an Error must not kill the lane, which would strand its queue.
+                failed.increment();
+                LOGGER.log(Level.WARNING, "Failed to process item in lane "
+                        + lane.thread.getName() + ".", ex);
+            }
+            processed.increment();
+        }
+        return any;
+    }
+
+    /**
+     * A queue and the single thread that drains it.
+     */
+    private static class Lane<T> {
+
+        private final MpscRingQueue<T> queue;
+        private Thread thread;
+        private volatile boolean sleeping;
+
+        Lane(int capacity) {
+            this.queue = new MpscRingQueue<T>(capacity);
+        }
+
+        void wake() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Pipeline passes each item through a series of Processor stages, such as parse, transform
+ * and persist, with every stage running on threads of its own.
+ * <p/>
+ * Stages are connected by preallocated SpscRingQueues, so handing an item on takes no lock and
+ * allocates nothing. A stateless stage may run several workers. Each worker upstream then
+ * deals items in turn to rings of its own, one per downstream worker, so every ring keeps a
+ * single producer and a single consumer. Items keep their order through stages of one worker;
+ * a stage of several workers may reorder them. Full rings hold back their producers, and
+ * empty rings idle their consumers, as the WaitStrategy directs.
+ * <p/>
+ * Items are submitted from a single thread, though any thread may close the pipeline; an item
+ * whose submit() returned true is always processed. An item whose processing throws, even
+ * with an Error, is logged, counted, and goes no further. Per-stage counts and queue depths
+ * show where items accumulate.
+ * <p/>
+ * Stages are added with stage(), after which start() launches the threads.
+ *
+ * @author John Pile
+ */
+public class Pipeline<T> {
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.Pipeline");
+
+    private final WaitStrategy wait;
+    private final int ringCapacity;
+    private final List<Stage<T>> stages = new ArrayList<Stage<T>>();
+    private Worker<T> source;
+    /**
+     * Submissions between checking running and finishing their hand-off.
+     */
+    private final StripedCounter offering = new StripedCounter();
+    private volatile boolean running = true;
+    private volatile boolean started;
+
+    /**
+     * Construct an empty pipeline.
+     *
+     * @param wait         how threads wait on full or empty rings
+     * @param ringCapacity most items held between a pair of workers
+     */
+    public Pipeline(WaitStrategy wait, int ringCapacity) {
+        this.wait = wait;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Append a stage run by one worker.
+     *
+     * @param name      name of the stage, used for its threads
+     * @param processor processor applied to each item
+     * @return this pipeline
+     */
+    public Pipeline<T> stage(String name, Processor<? super T> processor) {
+        return stage(name, processor, 1);
+    }
+
+    /**
+     * Append a stage run by several workers, each calling the same processor. The processor
+     * must be safe for concurrent use.
+     *
+     * @param name      name of the stage, used for its threads
+     * @param processor processor applied to each item
+     * @param workers   number of threads running the stage
+     * @return this pipeline
+     */
+    public Pipeline<T> stage(String name, Processor<? super T> processor, int workers) {
+        if (started) {
+            throw new IllegalStateException("Cannot add a stage to a started pipeline.");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("A stage needs at least one worker.");
+        }
+        stages.add(new Stage<T>(name, processor, workers));
+        return this;
+    }
+
+    /**
+     * Connect the stages and start their threads.
+     *
+     * @return this pipeline
+     */
+    @SuppressWarnings("unchecked")
+    public Pipeline<T> start() {
+        if (started) {
+            throw new IllegalStateException("Pipeline already started.");
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("A pipeline needs at least one stage.");
+        }
+        source = new Worker<T>(null, stages.get(0).workers.length, ringCapacity);
+        Worker<T>[] upstream = singleton(source);
+        for (int s = 0; s < stages.size(); s++) {
+            Stage<T> stage = stages.get(s);
+            stage.previous = s == 0 ? null : stages.get(s - 1);
+            int downstream = s + 1 < stages.size() ? stages.get(s + 1).workers.length : 0;
+            for (int w = 0; w < stage.workers.length; w++) {
+                Worker<T> worker = new Worker<T>(stage, downstream, ringCapacity);
+                worker.inputs = (SpscRingQueue<T>[]) new SpscRingQueue<?>[upstream.length];
+                for (int u = 0; u < upstream.length; u++) {
+                    worker.inputs[u] = upstream[u].outputs[w];
+                }
+                stage.workers[w] = worker;
+            }
+            upstream = stage.workers;
+        }
+        started = true;
+        for (Stage<T> stage : stages) {
+            for (int w = 0; w < stage.workers.length; w++) {
+                final Worker<T> worker = stage.workers[w];
+                worker.thread = new Thread(new Runnable() {
+                    public void run() {
+                        runWorker(worker);
+                    }
+                }, stage.name + "-" + w);
+                worker.thread.setDaemon(true);
+                worker.thread.start();
+            }
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Worker<T>[] singleton(Worker<T> worker) {
+        Worker<T>[] workers = (Worker<T>[]) new Worker<?>[1];
+        workers[0] = worker;
+        return workers;
+    }
+
+    /**
+     * Submit an item to the first stage, waiting while its ring is full. Only one thread may
+     * submit.
+     *
+     * @param item non-null item
+     * @return false if the pipeline has been closed
+     */
+    public boolean submit(T item) {
+        if (!started) {
+            throw new IllegalStateException("Pipeline not started.");
+        }
+        offering.increment();
+        try {
+            if (!running) {
+                return false;
+            }
+            hand(source, item);
+            return true;
+        } finally {
+            offering.add(-1);
+        }
+    }
+
+    /**
+     * Stop accepting items, let every stage finish those already submitted, and stop the
+     * threads.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads to finish
+     */
+    public void close() throws InterruptedException {
+        if (!started) {
+            return;
+        }
+        running = false;
+        // A submit that saw running before it turned false may still be handing its item on.
+        // The first stage keeps consuming until it finishes, so the item is not lost.
+        while (offering.sum() != 0) {
+            Thread.yield();
+        }
+        source.closed = true;
+        for (Stage<T> stage : stages) {
+            for (Worker<T> worker : stage.workers) {
+                worker.thread.join();
+            }
+        }
+    }
+
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    public String getStageName(int stage) {
+        return stages.get(stage).name;
+    }
+
+    /**
+     * Number of items a stage has processed, whether or not they failed.
+     */
+    public long getProcessed(int stage) {
+        return stages.get(stage).processed.sum();
+    }
+
+    /**
+     * Number of items whose processing in a stage threw an exception.
+     */
+    public long getFailed(int stage) {
+        return stages.get(stage).failed.sum();
+    }
+
+    /**
+     * First exception thrown by a stage's processor.
+     *
+     * @return the first failure, or null if the stage has not failed
+     */
+    public Throwable getFirstFailure(int stage) {
+        return stages.get(stage).firstFailure.get();
+    }
+
+    /**
+     * Sum of the results returned by a stage's processor.
+     */
+    public long getTotal(int stage) {
+        return stages.get(stage).total.sum();
+    }
+
+    /**
+     * Number of items waiting for a stage. A stage with a persistently deep queue is a
+     * bottleneck.
+     */
+    public int getDepth(int stage) {
+        int depth = 0;
+        for (Worker<T> worker : stages.get(stage).workers) {
+            if (worker != null && worker.inputs != null) {
+                for (SpscRingQueue<T> input : worker.inputs) {
+                    depth += input.size();
+                }
+            }
+        }
+        return depth;
+    }
+
+    private void runWorker(Worker<T> worker) {
+        try {
+            work(worker);
+        } finally {
+            // Always report, so downstream workers and close() are never left waiting.
+            worker.stage.remaining.decrementAndGet();
+        }
+    }
+
+    private void work(Worker<T> worker) {
+        Stage<T> stage = worker.stage;
+        SpscRingQueue<T>[] inputs = worker.inputs;
+        int next = 0;
+        while (true) {
+            // Read before polling, so that once upstream has closed, an empty sweep is final.
+            boolean drained = upstreamClosed(stage);
+            T item = null;
+            // Visit each input in turn, starting after the last one served.
+            for (int i = 0; i < inputs.length && item == null; i++) {
+                item = inputs[next].poll();
+                next = next + 1 == inputs.length ? 0 : next + 1;
+            }
+            if (item == null) {
+                if (drained) {
+                    break;
+                }
+                wait.idle();
+                continue;
+            }
+            boolean passed = false;
+            try {
+                stage.total.add(stage.processor.process(item));
+                passed = true;
+            } catch (Throwable ex) {
+                // Even an Error must not kill the worker, which would stall the stages around it.
+                stage.failed.increment();
+                stage.firstFailure.compareAndSet(null, ex);
+                LOGGER.log(Level.WARNING, "Failed to process item in stage " + stage.name + ".",
+                        ex);
+            }
+            stage.processed.increment();
+            if (passed && worker.outputs.length > 0) {
+                hand(worker, item);
+            }
+        }
+    }
+
+    /**
+     * True once every worker feeding a stage has stopped producing.
+     */
+    private boolean upstreamClosed(Stage<T> stage) {
+        return stage.previous == null ? source.closed : stage.previous.remaining.get() == 0;
+    }
+
+    /**
+     * Hand an item to a worker's next output ring, waiting while it is full.
+     */
+    private void hand(Worker<T> from, T item) {
+        SpscRingQueue<T> ring = from.outputs[from.nextOutput];
+        from.nextOutput = from.nextOutput + 1 == from.outputs.length ? 0 : from.nextOutput + 1;
+        while (!ring.offer(item)) {
+            wait.idle();
+        }
+    }
+
+    /**
+     * A named step of the pipeline and its counters.
+     */
+    private static class Stage<T> {
+
+        private final String name;
+        private final Processor<? super T> processor;
+        private final Worker<T>[] workers;
+        private final AtomicInteger remaining;
+        private final StripedCounter processed = new StripedCounter();
+        private final StripedCounter failed = new StripedCounter();
+        private final StripedCounter total = new StripedCounter();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<Throwable>();
+        private Stage<T> previous;
+
+        @SuppressWarnings("unchecked")
+        Stage(String name, Processor<? super T> processor, int workers) {
+            this.name = name;
+            this.processor = processor;
+            this.workers = (Worker<T>[]) new Worker<?>[workers];
+            this.remaining = new AtomicInteger(workers);
+        }
+    }
+
+    /**
+     * One thread of a stage, or the submitting thread, with the rings it reads and writes. Only
+     * the submitting side is ever closed; a stage's workers report through its remaining count.
+     */
+    private static class Worker<T> {
+
+        private final Stage<T> stage;
+        private final SpscRingQueue<T>[] outputs;
+        private SpscRingQueue<T>[] inputs;
+        private int nextOutput;
+        private Thread thread;
+        private volatile boolean closed;
+
+        @SuppressWarnings("unchecked")
+        Worker(Stage<T> stage, int downstream, int capacity) {
+            this.stage = stage;
+            this.outputs = (SpscRingQueue<T>[]) new SpscRingQueue<?>[downstream];
+            for (int i = 0; i < downstream; i++) {
+                outputs[i] = new SpscRingQueue<T>(capacity);
+            }
+        }
+    }
+
+}
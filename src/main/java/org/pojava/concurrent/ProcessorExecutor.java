@@ -0,0 +1,386 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A ProcessorExecutor runs a Processor over every item of a collection on several threads at
+ * once, summing the results the Processor returns.
+ * <p/>
+ * Each run starts one worker per degree of parallelism. Workers claim chunks of items in turn,
+ * so a worker finishing early takes more work rather than idling while another has a backlog.
+ * Random-access lists are claimed by index; other collections are drawn from their iterator.
+ * Chunks shrink as a list runs low, spreading its tail across workers.
+ * <p/>
+ * A RuntimeException thrown for one item is recorded as a Failure, and the remaining items
+ * are still processed. An Error is recorded too, but halts the run and is rethrown by
+ * process(). A run can be cancelled, after which workers stop at their next item.
+ *
+ * @author John Pile
+ */
+public class ProcessorExecutor {
+
+    private static final int MAX_CHUNK = 1024;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final boolean owned;
+
+    /**
+     * Construct an executor with its own pool of daemon threads, one per processor available.
+     */
+    public ProcessorExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct an executor with its own pool of daemon threads.
+     *
+     * @param parallelism number of threads
+     */
+    public ProcessorExecutor(int parallelism) {
+        this(Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ProcessorExecutor-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), parallelism, true);
+    }
+
+    /**
+     * Construct an executor running its workers on a shared ExecutorService, which remains the
+     * caller's to shut down.
+     *
+     * @param executor    service running the workers
+     * @param parallelism number of workers per run
+     */
+    public ProcessorExecutor(ExecutorService executor, int parallelism) {
+        this(executor, parallelism, false);
+    }
+
+    private ProcessorExecutor(ExecutorService executor, int parallelism, boolean owned) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least one.");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.owned = owned;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Start processing items in the background.
+     *
+     * @param processor processor applied to each item, from several threads at once
+     * @param items     items to process, which must not change during the run
+     * @return handle to await, inspect or cancel the run
+     * @throws RejectedExecutionException if the executor refuses a worker, in which case any
+     *                                    workers already started are cancelled
+     */
+    public <T> Run<T> submit(Processor<? super T> processor, Iterable<? extends T> items) {
+        Run<T> run = new Run<T>(processor, items, parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            try {
+                executor.execute(run.new Worker());
+            } catch (RejectedExecutionException ex) {
+                run.halt(ex);
+                for (int unstarted = i; unstarted < parallelism; unstarted++) {
+                    run.done.countDown();
+                }
+                throw ex;
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Process items and wait for the run to finish.
+     *
+     * @param processor processor applied to each item, from several threads at once
+     * @param items     items to process, which must not change during the run
+     * @return sum of the results returned by the processor
+     * @throws IllegalStateException if any item failed, with the first failure as its cause
+     * @throws Error                 if processing threw an Error, which halts the run
+     * @throws InterruptedException  if interrupted while waiting, in which case the run is
+     *                               cancelled
+     */
+    public <T> long process(Processor<? super T> processor, Iterable<? extends T> items)
+            throws InterruptedException {
+        Run<T> run = submit(processor, items);
+        try {
+            run.await();
+        } catch (InterruptedException ex) {
+            run.cancel();
+            throw ex;
+        }
+        Throwable error = run.getError();
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Run halted after " + run.getProcessed()
+                    + " items.", error);
+        }
+        List<Failure<T>> failures = run.getFailures();
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(failures.size() + " of " + run.getProcessed()
+                    + " items failed.", failures.get(0).getCause());
+        }
+        return run.getTotal();
+    }
+
+    /**
+     * Shut down the thread pool, if this executor created it.
+     */
+    public void shutdown() {
+        if (owned) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * One run of a Processor over a collection.
+     */
+    public static class Run<T> {
+
+        private final Processor<? super T> processor;
+        private final List<? extends T> list;
+        private final Iterator<? extends T> iterator;
+        private final int parallelism;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final StripedCounter total = new StripedCounter();
+        private final StripedCounter processed = new StripedCounter();
+        private final ConcurrentLinkedQueue<Failure<T>> failures = new ConcurrentLinkedQueue<Failure<T>>();
+        private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        private final CountDownLatch done;
+        private volatile boolean cancelled;
+
+        @SuppressWarnings("unchecked")
+        Run(Processor<? super T> processor, Iterable<? extends T> items, int parallelism) {
+            this.processor = processor;
+            this.parallelism = parallelism;
+            if (items instanceof List && items instanceof RandomAccess) {
+                this.list = (List<? extends T>) items;
+                this.iterator = null;
+            } else {
+                this.list = null;
+                this.iterator = items.iterator();
+            }
+            this.done = new CountDownLatch(parallelism);
+        }
+
+        /**
+         * Stop the run. Items already being processed are finished.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * Wait for every worker to finish.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void await() throws InterruptedException {
+            done.await();
+        }
+
+        /**
+         * Wait for every worker to finish, for no longer than a timeout.
+         *
+         * @return true if the run finished, false if the timeout elapsed
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return done.await(timeout, unit);
+        }
+
+        /**
+         * Sum of the results returned by the processor so far.
+         */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * Number of items processed so far, whether or not they failed.
+         */
+        public long getProcessed() {
+            return processed.sum();
+        }
+
+        /**
+         * The first Throwable, other than a RuntimeException of a single item, that halted the
+         * run.
+         *
+         * @return the cause of a halt, or null if the run was not halted
+         */
+        public Throwable getError() {
+            return error.get();
+        }
+
+        /**
+         * Record the cause of a halt and stop the run.
+         */
+        void halt(Throwable cause) {
+            error.compareAndSet(null, cause);
+            cancelled = true;
+        }
+
+        /**
+         * Items that failed so far, with the exceptions they threw.
+         */
+        public List<Failure<T>> getFailures() {
+            return new ArrayList<Failure<T>>(failures);
+        }
+
+        /**
+         * Process one chunk, returning false once no items remain.
+         */
+        private boolean processChunk(Object[] buffer) {
+            if (list != null) {
+                int size = list.size();
+                int remaining = size - cursor.get();
+                int chunk = Math.max(1, Math.min(MAX_CHUNK, remaining / (parallelism * 4)));
+                int start = cursor.getAndAdd(chunk);
+                if (start >= size) {
+                    return false;
+                }
+                int end = Math.min(size, start + chunk);
+                long sum = 0;
+                int i = start;
+                for (; i < end && !cancelled; i++) {
+                    sum += processOne(list.get(i));
+                }
+                total.add(sum);
+                processed.add(i - start);
+                return true;
+            }
+            int count = 0;
+            synchronized (iterator) {
+                while (count < buffer.length && iterator.hasNext()) {
+                    buffer[count++] = iterator.next();
+                }
+            }
+            if (count == 0) {
+                return false;
+            }
+            long sum = 0;
+            int ran = 0;
+            for (int i = 0; i < count; i++) {
+                if (!cancelled) {
+                    sum += processOneUnchecked(buffer[i]);
+                    ran++;
+                }
+                buffer[i] = null;
+            }
+            total.add(sum);
+            processed.add(ran);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int processOneUnchecked(Object item) {
+            return processOne((T) item);
+        }
+
+        private int processOne(T item) {
+            try {
+                return processor.process(item);
+            } catch (RuntimeException ex) {
+                failures.add(new Failure<T>(item, ex));
+            } catch (Throwable ex) {
+                // An Error is not confined to one item, so stop the run.
+                failures.add(new Failure<T>(item, ex));
+                halt(ex);
+            }
+            return 0;
+        }
+
+        /**
+         * Claims and processes chunks until none remain.
+         */
+        private class Worker implements Runnable {
+
+            public void run() {
+                try {
+                    Object[] buffer = iterator == null ? null : new Object[64];
+                    while (!cancelled && processChunk(buffer)) {
+                        // Keep claiming work.
+                    }
+                } catch (Throwable ex) {
+                    // The collection itself failed, outside any one item.
+                    halt(ex);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+    }
+
+    /**
+     * An item whose processing threw an exception.
+     */
+    public static class Failure<T> {
+
+        private final T item;
+        private final Throwable cause;
+
+        Failure(T item, Throwable cause) {
+            this.item = item;
+            this.cause = cause;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+    }
+
+}
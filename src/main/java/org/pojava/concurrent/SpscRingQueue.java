@@ -0,0 +1,133 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An SpscRingQueue is a bounded, lock-free queue between exactly one producing thread and one
+ * consuming thread. It never blocks: offer fails when the queue is full, and poll returns null
+ * when it is empty.
+ * <p/>
+ * With only one thread on each side, neither needs a compare-and-set. The producer publishes an
+ * element by advancing the tail, and the consumer frees a slot by advancing the head, each with
+ * an ordered write. Each side keeps its last view of the other's position and rereads it only
+ * when the ring appears full or empty.
+ *
+ * @author John Pile
+ */
+public class SpscRingQueue<E> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Producer's last view of head.
+     */
+    private long headCache;
+
+    /**
+     * Consumer's last view of tail.
+     */
+    private long tailCache;
+
+    /**
+     * Construct an empty queue.
+     *
+     * @param capacity minimum number of elements held, rounded up to a power of two
+     */
+    public SpscRingQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be from 1 to 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new Object[size];
+    }
+
+    /**
+     * Add an element. Only one thread may offer.
+     *
+     * @param element non-null element
+     * @return false if the queue was full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("A queue cannot hold null.");
+        }
+        long pos = tail.get();
+        if (pos - headCache > mask) {
+            headCache = head.get();
+            if (pos - headCache > mask) {
+                return false;
+            }
+        }
+        elements[(int) pos & mask] = element;
+        tail.lazySet(pos + 1);
+        return true;
+    }
+
+    /**
+     * Remove the oldest element. Only one thread may poll.
+     *
+     * @return oldest element, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head.get();
+        if (pos >= tailCache) {
+            tailCache = tail.get();
+            if (pos >= tailCache) {
+                return null;
+            }
+        }
+        int index = (int) pos & mask;
+        E element = (E) elements[index];
+        elements[index] = null;
+        head.lazySet(pos + 1);
+        return element;
+    }
+
+    /**
+     * True if no element is waiting. This is only a momentary view while the producer is
+     * active.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    /**
+     * Approximate number of elements waiting.
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * Number of elements the queue can hold.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A StripedCounter is a sum that many threads add to at once. Each thread adds to one of
+ * several cells chosen by its thread id, and the cells are spaced a cache line apart, so
+ * threads on different cores rarely contend for the same line. Reading the sum visits every
+ * cell, so it suits counters written far more often than read.
+ *
+ * @author John Pile
+ */
+public class StripedCounter {
+
+    /**
+     * Longs per cell, spacing cells 128 bytes apart.
+     */
+    private static final int SPACING = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Construct a counter with enough cells for the processors available.
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Construct a counter.
+     *
+     * @param stripes minimum number of cells, rounded up to a power of two
+     */
+    public StripedCounter(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Stripes must be from 1 to 2^16.");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * SPACING);
+    }
+
+    /**
+     * Add to the sum.
+     *
+     * @param delta amount to add, which may be negative
+     */
+    public void add(long delta) {
+        int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        cells.getAndAdd(((hash >>> 16) & mask) * SPACING, delta);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Current sum. While threads are adding, this need not match the sum at any one instant.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(i * SPACING);
+        }
+        return sum;
+    }
+
+    /**
+     * Return the sum and reset it to zero.
+     */
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.getAndSet(i * SPACING, 0);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.pojava.concurrent;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A WaitStrategy decides how a thread waits for a ring to gain an element or free a slot,
+ * trading CPU for latency. SPIN reacts fastest and burns a core, PARK sleeps briefly and costs
+ * almost nothing while idle, and YIELD falls between them.
+ *
+ * @author John Pile
+ */
+public enum WaitStrategy {
+
+    SPIN {
+        void idle() {
+            // Retry at once.
+        }
+    },
+
+    YIELD {
+        void idle() {
+            Thread.yield();
+        }
+    },
+
+    PARK {
+        void idle() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Wait once before checking again.
+     */
+    abstract void idle();
+
+}
@@ -0,0 +1,35 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.List;
+
+/**
+ * The BatchProcessor interface is the batch counterpart of Processor, receiving many objects
+ * in one call so that per-call costs such as a round trip are paid once per batch.
+ */
+public interface BatchProcessor<T> {
+
+    /**
+     * Process a batch. The list belongs to the caller and may be reused after this returns.
+     *
+     * @param batch objects to process, in order
+     * @return a result summed across batches, typically the number processed
+     */
+    int process(List<T> batch);
+
+}
@@ -0,0 +1,386 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A BindingList is a compact list of bindings. Primitive int, long and double values are
+ * stored unboxed in parallel lanes, tagged by a byte per slot, while any other binding is held
+ * as the very object that was added.
+ * <p/>
+ * Every slot reads as an UncheckedBinding. A primitive slot is read as a new IntBinding,
+ * LongBinding or DoubleBinding holding a copy of its value, so setting a value on it does not
+ * change the list. The typed accessors read a slot without creating a binding or boxing.
+ *
+ * @author John Pile
+ */
+public class BindingList extends AbstractList<UncheckedBinding> implements RandomAccess {
+
+    /**
+     * Tag of a slot holding a binding object.
+     */
+    public static final byte OBJECT = 0;
+    /**
+     * Tag of a slot holding a primitive int.
+     */
+    public static final byte INT = 1;
+    /**
+     * Tag of a slot holding a primitive long.
+     */
+    public static final byte LONG = 2;
+    /**
+     * Tag of a slot holding a primitive double.
+     */
+    public static final byte DOUBLE = 3;
+
+    private static final int INITIAL_CAPACITY = 10;
+
+    private byte[] tags = new byte[INITIAL_CAPACITY];
+    private long[] longs;
+    private double[] doubles;
+    private UncheckedBinding[] refs;
+    private int size;
+
+    /**
+     * Construct an empty list.
+     */
+    public BindingList() {
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the binding in a slot.
+     *
+     * @param index zero-based slot
+     * @return the binding added, or a binding holding a copy of a primitive value
+     */
+    @Override
+    public UncheckedBinding get(int index) {
+        check(index);
+        switch (tags[index]) {
+            case INT:
+                return new IntBinding((int) longs[index]);
+            case LONG:
+                return new LongBinding(longs[index]);
+            case DOUBLE:
+                return new DoubleBinding(doubles[index]);
+            default:
+                return refs[index];
+        }
+    }
+
+    /**
+     * Return the tag of a slot.
+     *
+     * @param index zero-based slot
+     * @return OBJECT, INT, LONG or DOUBLE
+     */
+    public byte tagOf(int index) {
+        check(index);
+        return tags[index];
+    }
+
+    /**
+     * Return the value of a slot as an int.
+     *
+     * @param index zero-based slot
+     * @return value of a primitive slot, or of the Number held by an object slot
+     */
+    public int getInt(int index) {
+        check(index);
+        byte tag = tags[index];
+        if (tag == INT || tag == LONG) {
+            return (int) longs[index];
+        }
+        return tag == DOUBLE ? (int) doubles[index] : number(index).intValue();
+    }
+
+    /**
+     * Return the value of a slot as a long.
+     *
+     * @param index zero-based slot
+     * @return value of a primitive slot, or of the Number held by an object slot
+     */
+    public long getLong(int index) {
+        check(index);
+        byte tag = tags[index];
+        if (tag == INT || tag == LONG) {
+            return longs[index];
+        }
+        return tag == DOUBLE ? (long) doubles[index] : number(index).longValue();
+    }
+
+    /**
+     * Return the value of a slot as a double.
+     *
+     * @param index zero-based slot
+     * @return value of a primitive slot, or of the Number held by an object slot
+     */
+    public double getDouble(int index) {
+        check(index);
+        byte tag = tags[index];
+        if (tag == INT || tag == LONG) {
+            return longs[index];
+        }
+        return tag == DOUBLE ? doubles[index] : number(index).doubleValue();
+    }
+
+    private Number number(int index) {
+        Object obj = refs[index] == null ? null : refs[index].getObj();
+        if (!(obj instanceof Number)) {
+            throw new IllegalStateException("Binding " + index + " does not hold a number.");
+        }
+        return (Number) obj;
+    }
+
+    /**
+     * Add a primitive int.
+     */
+    public void addInt(int value) {
+        int index = grow(1);
+        tags[index] = INT;
+        longs()[index] = value;
+    }
+
+    /**
+     * Add a primitive long.
+     */
+    public void addLong(long value) {
+        int index = grow(1);
+        tags[index] = LONG;
+        longs()[index] = value;
+    }
+
+    /**
+     * Add a primitive double.
+     */
+    public void addDouble(double value) {
+        int index = grow(1);
+        tags[index] = DOUBLE;
+        doubles()[index] = value;
+    }
+
+    @Override
+    public boolean add(UncheckedBinding binding) {
+        int index = grow(1);
+        tags[index] = OBJECT;
+        refs()[index] = binding;
+        return true;
+    }
+
+    @Override
+    public void add(int index, UncheckedBinding binding) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        grow(1);
+        shift(index, 1);
+        tags[index] = OBJECT;
+        refs()[index] = binding;
+    }
+
+    /**
+     * Replace a slot with a binding object.
+     *
+     * @param index   zero-based slot
+     * @param binding binding to hold
+     * @return the binding previously in the slot
+     */
+    @Override
+    public UncheckedBinding set(int index, UncheckedBinding binding) {
+        UncheckedBinding old = get(index);
+        tags[index] = OBJECT;
+        refs()[index] = binding;
+        return old;
+    }
+
+    @Override
+    public UncheckedBinding remove(int index) {
+        UncheckedBinding old = get(index);
+        int tail = size - index - 1;
+        System.arraycopy(tags, index + 1, tags, index, tail);
+        if (longs != null) {
+            System.arraycopy(longs, index + 1, longs, index, tail);
+        }
+        if (doubles != null) {
+            System.arraycopy(doubles, index + 1, doubles, index, tail);
+        }
+        if (refs != null) {
+            System.arraycopy(refs, index + 1, refs, index, tail);
+            refs[size - 1] = null;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends UncheckedBinding> bindings) {
+        return addAll(size, bindings);
+    }
+
+    /**
+     * Insert bindings, shifting the existing slots once. Primitive slots of another
+     * BindingList are copied as primitives.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends UncheckedBinding> bindings) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int count = bindings.size();
+        if (count == 0) {
+            return false;
+        }
+        if (bindings instanceof BindingList) {
+            BindingList other = (BindingList) bindings;
+            // Copy the source's lanes first, in case the source is this list.
+            byte[] otherTags = Arrays.copyOf(other.tags, count);
+            long[] otherLongs = other.longs == null ? null : Arrays.copyOf(other.longs, count);
+            double[] otherDoubles = other.doubles == null ? null
+                    : Arrays.copyOf(other.doubles, count);
+            UncheckedBinding[] otherRefs = other.refs == null ? null
+                    : Arrays.copyOf(other.refs, count);
+            grow(count);
+            shift(index, count);
+            System.arraycopy(otherTags, 0, tags, index, count);
+            if (otherLongs != null) {
+                System.arraycopy(otherLongs, 0, longs(), index, count);
+            }
+            if (otherDoubles != null) {
+                System.arraycopy(otherDoubles, 0, doubles(), index, count);
+            }
+            if (otherRefs != null) {
+                System.arraycopy(otherRefs, 0, refs(), index, count);
+            }
+        } else {
+            Object[] added = bindings.toArray();
+            grow(count);
+            shift(index, count);
+            UncheckedBinding[] r = refs();
+            for (int i = 0; i < count; i++) {
+                tags[index + i] = OBJECT;
+                r[index + i] = (UncheckedBinding) added[i];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (refs != null) {
+            Arrays.fill(refs, 0, size, null);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Reduce the storage of an empty list to at most a given number of slots.
+     *
+     * @param capacity largest number of slots to retain
+     */
+    public void trimTo(int capacity) {
+        if (size == 0 && tags.length > capacity) {
+            tags = new byte[capacity];
+            longs = null;
+            doubles = null;
+            refs = null;
+        }
+    }
+
+    private void check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Make room for more slots and count them, returning the first new slot.
+     */
+    private int grow(int count) {
+        int needed = size + count;
+        if (needed > tags.length) {
+            int capacity = Math.max(needed, tags.length + (tags.length >> 1));
+            tags = Arrays.copyOf(tags, capacity);
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, capacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            }
+            if (refs != null) {
+                refs = Arrays.copyOf(refs, capacity);
+            }
+        }
+        int first = size;
+        size = needed;
+        modCount++;
+        return first;
+    }
+
+    /**
+     * Move the slots from index onward to the end of the list, after grow(count).
+     */
+    private void shift(int index, int count) {
+        int tail = size - count - index;
+        if (tail == 0) {
+            return;
+        }
+        System.arraycopy(tags, index, tags, index + count, tail);
+        if (longs != null) {
+            System.arraycopy(longs, index, longs, index + count, tail);
+        }
+        if (doubles != null) {
+            System.arraycopy(doubles, index, doubles, index + count, tail);
+        }
+        if (refs != null) {
+            System.arraycopy(refs, index, refs, index + count, tail);
+            Arrays.fill(refs, index, index + count, null);
+        }
+    }
+
+    private long[] longs() {
+        if (longs == null) {
+            longs = new long[tags.length];
+        }
+        return longs;
+    }
+
+    private double[] doubles() {
+        if (doubles == null) {
+            doubles = new double[tags.length];
+        }
+        return doubles;
+    }
+
+    private UncheckedBinding[] refs() {
+        if (refs == null) {
+            refs = new UncheckedBinding[tags.length];
+        }
+        return refs;
+    }
+
+}
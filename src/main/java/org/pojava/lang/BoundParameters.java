@@ -0,0 +1,151 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BoundParameters hold the bindings for one use of a BoundTemplate. The template's text is
+ * shared rather than copied, and each placeholder has a slot that may be set by index or by
+ * name in any order.
+ *
+ * @author John Pile
+ */
+public class BoundParameters {
+
+    private final BoundTemplate template;
+    private final UncheckedBinding[] bindings;
+    private int bound;
+
+    /**
+     * Construct empty bindings for a template.
+     *
+     * @param template parsed template
+     */
+    public BoundParameters(BoundTemplate template) {
+        this.template = template;
+        this.bindings = new UncheckedBinding[template.size()];
+    }
+
+    public BoundTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Return the string being bound, in positional form.
+     */
+    public String getString() {
+        return template.getString();
+    }
+
+    /**
+     * Return the bindings in placeholder order. Unset slots are null.
+     *
+     * @return fixed-size List view of the bindings.
+     */
+    public List<UncheckedBinding> getBindings() {
+        return Arrays.asList(bindings);
+    }
+
+    /**
+     * Bind a placeholder by position.
+     *
+     * @param index   zero-based placeholder index
+     * @param binding binding for the placeholder
+     * @return these parameters, for chaining
+     */
+    public BoundParameters set(int index, UncheckedBinding binding) {
+        if (bindings[index] == null) {
+            bound++;
+        }
+        bindings[index] = binding;
+        if (binding == null) {
+            bound--;
+        }
+        return this;
+    }
+
+    /**
+     * Bind a placeholder by position.
+     *
+     * @param index zero-based placeholder index
+     * @param type  class of object to bind
+     * @param obj   object to bind
+     * @return these parameters, for chaining
+     */
+    public <T> BoundParameters set(int index, Class<T> type, T obj) {
+        return set(index, new Binding<T>(type, obj));
+    }
+
+    /**
+     * Bind every occurrence of a named placeholder. Each occurrence shares the same binding.
+     *
+     * @param name name of placeholder, without its colon
+     * @param type class of object to bind
+     * @param obj  object to bind
+     * @return these parameters, for chaining
+     * @throws IllegalArgumentException if the template has no such name
+     */
+    public <T> BoundParameters set(String name, Class<T> type, T obj) {
+        int[] indexes = template.indexesOf(name);
+        if (indexes.length == 0) {
+            throw new IllegalArgumentException("No placeholder named '" + name + "'.");
+        }
+        Binding<T> binding = new Binding<T>(type, obj);
+        for (int index : indexes) {
+            set(index, binding);
+        }
+        return this;
+    }
+
+    /**
+     * Verify that every placeholder is bound.
+     *
+     * @return True if any placeholder is unbound.
+     */
+    public boolean isImbalanced() {
+        return bound != bindings.length;
+    }
+
+    /**
+     * Clear all bindings, so these parameters can be reused with the same template.
+     */
+    public void clear() {
+        Arrays.fill(bindings, null);
+        bound = 0;
+    }
+
+    /**
+     * Copy the template text and bindings into a new BoundString.
+     *
+     * @return BoundString equivalent of these parameters
+     */
+    public BoundString toBoundString() {
+        BoundString bs = new BoundString(template.getString());
+        bs.addBindings(getBindings());
+        return bs;
+    }
+
+    /**
+     * Display the template with String versions of each bound value represented in-line.
+     */
+    public String toString() {
+        return toBoundString().toString();
+    }
+
+}
@@ -0,0 +1,240 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A BoundRope is an immutable String with Bindings, built by composing fragments rather than
+ * copying them. Appending, inserting and nesting each create a single node that shares both
+ * sides, so a query assembled from a deep tree of fragments costs time proportional to its
+ * fragments, not to the square of its length.
+ * <p/>
+ * The text and bindings are flattened once, in a single left-to-right pass, when first
+ * requested. A fragment that has already been flattened is reused as a whole by any rope
+ * containing it.
+ *
+ * @author John Pile
+ */
+public final class BoundRope {
+
+    private static final UncheckedBinding[] NO_BINDINGS = new UncheckedBinding[0];
+
+    /**
+     * A rope with no text and no bindings.
+     */
+    public static final BoundRope EMPTY = new BoundRope("");
+
+    private final String text;
+    private final UncheckedBinding[] bindings;
+    private final BoundRope left;
+    private final BoundRope right;
+    private final int length;
+    private final int bindingCount;
+    private Flat flat;
+
+    /**
+     * Construct a fragment of text without bindings.
+     *
+     * @param text fragment of text
+     */
+    public BoundRope(String text) {
+        this(text, NO_BINDINGS);
+    }
+
+    /**
+     * Construct a fragment of text with its bindings.
+     *
+     * @param text     fragment of text
+     * @param bindings one binding per placeholder in the text
+     */
+    public BoundRope(String text, UncheckedBinding... bindings) {
+        this.text = text;
+        this.bindings = bindings.clone();
+        this.left = null;
+        this.right = null;
+        this.length = text.length();
+        this.bindingCount = bindings.length;
+    }
+
+    private BoundRope(BoundRope left, BoundRope right) {
+        this.text = null;
+        this.bindings = null;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+        this.bindingCount = left.bindingCount + right.bindingCount;
+    }
+
+    /**
+     * Construct a fragment holding a copy of a BoundString's text and bindings.
+     *
+     * @param bs BoundString to copy
+     * @return a rope equivalent to the BoundString as it is now
+     */
+    public static BoundRope valueOf(BoundString bs) {
+        List<UncheckedBinding> list = bs.getBindings();
+        return new BoundRope(bs.getString(), list.toArray(new UncheckedBinding[list.size()]));
+    }
+
+    /**
+     * Return a rope of this followed by another.
+     *
+     * @param other rope to follow this one
+     * @return combined rope, sharing both
+     */
+    public BoundRope append(BoundRope other) {
+        if (other.length == 0 && other.bindingCount == 0) {
+            return this;
+        }
+        if (length == 0 && bindingCount == 0) {
+            return other;
+        }
+        return new BoundRope(this, other);
+    }
+
+    /**
+     * Return a rope of this followed by text.
+     *
+     * @param str text to follow this rope
+     * @return combined rope
+     */
+    public BoundRope append(String str) {
+        return append(new BoundRope(str));
+    }
+
+    /**
+     * Return a rope of another followed by this.
+     *
+     * @param other rope to precede this one
+     * @return combined rope, sharing both
+     */
+    public BoundRope insert(BoundRope other) {
+        return other.append(this);
+    }
+
+    /**
+     * Return a rope of text followed by this.
+     *
+     * @param str text to precede this rope
+     * @return combined rope
+     */
+    public BoundRope insert(String str) {
+        return new BoundRope(str).append(this);
+    }
+
+    /**
+     * Length of the text, known without flattening.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Number of bindings, known without flattening.
+     */
+    public int bindingCount() {
+        return bindingCount;
+    }
+
+    /**
+     * Return the string being bound.
+     *
+     * @return String into which Binding objects are bound.
+     */
+    public String getString() {
+        return flatten().text;
+    }
+
+    /**
+     * Return the bindings bound to the string.
+     *
+     * @return unmodifiable List of Binding objects.
+     */
+    public List<UncheckedBinding> getBindings() {
+        return flatten().bindings;
+    }
+
+    /**
+     * Copy the text and bindings into a new BoundString.
+     *
+     * @return BoundString equivalent of this rope
+     */
+    public BoundString toBoundString() {
+        Flat f = flatten();
+        BoundString bs = new BoundString(f.text);
+        bs.addBindings(f.bindings);
+        return bs;
+    }
+
+    /**
+     * Display the text with String versions of each bound value represented in-line.
+     */
+    public String toString() {
+        return toBoundString().toString();
+    }
+
+    private Flat flatten() {
+        Flat f = flat;
+        if (f != null) {
+            return f;
+        }
+        if (text != null) {
+            f = new Flat(text, Arrays.asList(bindings));
+        } else {
+            StringBuilder sb = new StringBuilder(length);
+            List<UncheckedBinding> list = new ArrayList<UncheckedBinding>(bindingCount);
+            List<BoundRope> stack = new ArrayList<BoundRope>();
+            stack.add(this);
+            while (!stack.isEmpty()) {
+                BoundRope node = stack.remove(stack.size() - 1);
+                Flat done = node.flat;
+                if (done != null) {
+                    sb.append(done.text);
+                    list.addAll(done.bindings);
+                } else if (node.text != null) {
+                    sb.append(node.text);
+                    list.addAll(Arrays.asList(node.bindings));
+                } else {
+                    stack.add(node.right);
+                    stack.add(node.left);
+                }
+            }
+            f = new Flat(sb.toString(), list);
+        }
+        flat = f;
+        return f;
+    }
+
+    /**
+     * The text and bindings of a rope, once flattened.
+     */
+    private static class Flat {
+
+        private final String text;
+        private final List<UncheckedBinding> bindings;
+
+        Flat(String text, List<UncheckedBinding> bindings) {
+            this.text = text;
+            this.bindings = Collections.unmodifiableList(bindings);
+        }
+    }
+
+}
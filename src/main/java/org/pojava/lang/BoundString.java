@@ -17,12 +17,19 @@ package org.pojava.lang;
  */
 
 import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
 import org.pojava.datetime.DateTimeFormat;
+import org.pojava.exception.InconceivableException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A BoundString represents a String with Bindings. Each binding is represented by a placeholder
@@ -34,9 +41,41 @@ public class BoundString {
 
     private static final char PLACEHOLDER = '?';
     private static final char QUOT = '\'';
-    private final StringBuffer sb = new StringBuffer();
-    private final List<UncheckedBinding> bindings = new ArrayList<UncheckedBinding>();
+    private StringBuilder sb = new StringBuilder();
+    private final BindingList bindings = new BindingList();
     private static final String date2ms = "MM/dd/yyyy HH:mm:ss.SSS";
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Default sizes to which an IN list is padded. The largest is the limit many databases
+     * place on the length of a single IN list.
+     */
+    private static final int[] DEFAULT_IN_BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1000};
+
+    /**
+     * Placeholder lists such as "(?, ?, ?)", by size.
+     */
+    private static final Map<Integer, String> inLists = new ConcurrentHashMap<Integer, String>();
+
+    /**
+     * Running String.hashCode() of the buffer, maintained as text is added.
+     */
+    private int hash;
+    private boolean hashed = true;
+
+    /**
+     * The buffer as a String, shared until the buffer next changes.
+     */
+    private String text;
+
+    /**
+     * Default sizes to which an IN list is padded.
+     *
+     * @return a copy of the default bucket sizes, in ascending order
+     */
+    public static int[] getDefaultInBuckets() {
+        return DEFAULT_IN_BUCKETS.clone();
+    }
 
     /**
      * Construct an empty BoundString.
@@ -49,6 +88,7 @@ public class BoundString {
      */
     public BoundString(String str) {
         this.sb.append(str);
+        this.hash = String.valueOf(str).hashCode();
     }
 
     /**
@@ -57,7 +97,12 @@ public class BoundString {
      * @param str String to be appended
      */
     public void append(String str) {
+        if (this.hashed) {
+            String text = String.valueOf(str);
+            this.hash = this.hash * pow31(text.length()) + text.hashCode();
+        }
         this.sb.append(str);
+        this.text = null;
     }
 
     /**
@@ -66,7 +111,11 @@ public class BoundString {
      * @param str String to be inserted
      */
     public void insert(String str) {
+        if (this.hashed) {
+            this.hash = String.valueOf(str).hashCode() * pow31(this.sb.length()) + this.hash;
+        }
         this.sb.insert(0, str);
+        this.text = null;
     }
 
     /**
@@ -75,7 +124,11 @@ public class BoundString {
      * @param bstr bound string to append
      */
     public void append(BoundString bstr) {
-        this.sb.append(bstr.getString());
+        if (this.hashed) {
+            this.hash = this.hash * pow31(bstr.sb.length()) + bstr.getStringHash();
+        }
+        this.sb.append(bstr.sb);
+        this.text = null;
         this.bindings.addAll(bstr.getBindings());
     }
 
@@ -85,7 +138,11 @@ public class BoundString {
      * @param bstr bound string to insert
      */
     public void insert(BoundString bstr) {
-        this.sb.insert(0, bstr.getString());
+        if (this.hashed) {
+            this.hash = bstr.getStringHash() * pow31(this.sb.length()) + this.hash;
+        }
+        this.sb.insert(0, bstr == this ? bstr.getString() : bstr.sb);
+        this.text = null;
         this.bindings.addAll(0, bstr.getBindings());
     }
 
@@ -104,7 +161,68 @@ public class BoundString {
      * @return String into which Binding objects are bound.
      */
     public String getString() {
-        return this.sb.toString();
+        String str = this.text;
+        if (str == null) {
+            str = this.sb.toString();
+            this.text = str;
+        }
+        return str;
+    }
+
+    /**
+     * Return the hash of the string being bound, equal to getString().hashCode(), without
+     * copying the string. The hash is maintained incrementally as text is appended or
+     * inserted.
+     *
+     * @return hash code of the bound string
+     */
+    public int getStringHash() {
+        if (!hashed) {
+            int h = 0;
+            for (int i = 0; i < sb.length(); i++) {
+                h = 31 * h + sb.charAt(i);
+            }
+            hash = h;
+            hashed = true;
+        }
+        return hash;
+    }
+
+    /**
+     * Compare the string being bound to a sequence of characters, without copying the string.
+     *
+     * @param str characters to compare
+     * @return true if the bound string holds exactly the given characters
+     */
+    public boolean contentEquals(CharSequence str) {
+        int len = sb.length();
+        if (str.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (sb.charAt(i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take an immutable snapshot of the string and bindings. The string is shared rather than
+     * copied when it has already been requested and not since changed. Each binding is copied,
+     * so later changes to this BoundString or its bindings do not reach the snapshot.
+     *
+     * @return a BoundRope equal to this BoundString as it is now
+     */
+    public BoundRope snapshot() {
+        int size = bindings.size();
+        UncheckedBinding[] copies = new UncheckedBinding[size];
+        for (int i = 0; i < size; i++) {
+            UncheckedBinding binding = bindings.get(i);
+            copies[i] = bindings.tagOf(i) != BindingList.OBJECT || binding == null ? binding
+                    : new UncheckedBinding(binding.getType(), binding.getObj());
+        }
+        return new BoundRope(getString(), copies);
     }
 
     /**
@@ -121,6 +239,33 @@ public class BoundString {
         this.bindings.add(binding);
     }
 
+    /**
+     * Add an int binding, stored without boxing.
+     *
+     * @param value value to bind
+     */
+    public void addBinding(int value) {
+        this.bindings.addInt(value);
+    }
+
+    /**
+     * Add a long binding, stored without boxing.
+     *
+     * @param value value to bind
+     */
+    public void addBinding(long value) {
+        this.bindings.addLong(value);
+    }
+
+    /**
+     * Add a double binding, stored without boxing.
+     *
+     * @param value value to bind
+     */
+    public void addBinding(double value) {
+        this.bindings.addDouble(value);
+    }
+
     /**
      * Add a collection of bindings.
      *
@@ -130,14 +275,142 @@ public class BoundString {
         this.bindings.addAll(bindings);
     }
 
+    /**
+     * Append a parenthesized list of placeholders for an IN clause, binding each value. The
+     * list is padded to the next of the DEFAULT_IN_BUCKETS by repeating the last value, so that
+     * lists of similar length share the same SQL text.
+     *
+     * @param type   class of each value
+     * @param values one or more values, no more than the largest bucket
+     */
+    public <T> void appendIn(Class<T> type, Collection<? extends T> values) {
+        appendIn(type, values, DEFAULT_IN_BUCKETS);
+    }
+
+    /**
+     * Append a parenthesized list of placeholders for an IN clause, binding each value. The
+     * list is padded to the next bucket size by repeating the last value, so that lists of
+     * similar length share the same SQL text.
+     *
+     * @param type    class of each value
+     * @param values  one or more values, no more than the largest bucket
+     * @param buckets ascending list sizes
+     */
+    public <T> void appendIn(Class<T> type, Collection<? extends T> values, int[] buckets) {
+        int size = values.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("An IN list requires at least one value.");
+        }
+        int bucket = bucketFor(size, buckets);
+        if (bucket < 0) {
+            throw new IllegalArgumentException("An IN list of " + size
+                    + " values exceeds the largest bucket of " + buckets[buckets.length - 1]
+                    + ". Use splitIn instead.");
+        }
+        append(inList(bucket));
+        T last = null;
+        for (T value : values) {
+            this.bindings.add(new Binding<T>(type, value));
+            last = value;
+        }
+        for (int i = size; i < bucket; i++) {
+            this.bindings.add(new Binding<T>(type, last));
+        }
+    }
+
+    /**
+     * Build one statement per chunk of a list too long for a single IN clause. Every chunk but
+     * the last holds as many values as the largest bucket, and the last is padded to its
+     * bucket, so the statements share at most two SQL texts.
+     *
+     * @param head    text preceding the IN list
+     * @param type    class of each value
+     * @param values  one or more values
+     * @param tail    text following the IN list, or null
+     * @param buckets ascending list sizes
+     * @return statements whose results, taken together, cover every value
+     */
+    public static <T> List<BoundString> splitIn(String head, Class<T> type,
+                                                Collection<? extends T> values, String tail,
+                                                int[] buckets) {
+        int chunk = buckets[buckets.length - 1];
+        List<BoundString> list = new ArrayList<BoundString>(values.size() / chunk + 1);
+        List<T> part = new ArrayList<T>(Math.min(chunk, values.size()));
+        Iterator<? extends T> it = values.iterator();
+        while (it.hasNext()) {
+            part.add(it.next());
+            if (part.size() == chunk || !it.hasNext()) {
+                BoundString bs = new BoundString(head);
+                bs.appendIn(type, part, buckets);
+                if (tail != null) {
+                    bs.append(tail);
+                }
+                list.add(bs);
+                part.clear();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Return the smallest bucket holding a number of values, or -1 if none is large enough.
+     */
+    private static int bucketFor(int size, int[] buckets) {
+        for (int bucket : buckets) {
+            if (bucket >= size) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    private static String inList(int size) {
+        String list = inLists.get(size);
+        if (list == null) {
+            StringBuilder text = new StringBuilder(size * 3 + 1);
+            text.append('(');
+            for (int i = 0; i < size; i++) {
+                text.append(i == 0 ? "?" : ", ?");
+            }
+            list = text.append(')').toString();
+            inLists.put(size, list);
+        }
+        return list;
+    }
+
     /**
      * Clear both string and bindings.
      */
     public void clear() {
+        this.hash = 0;
+        this.hashed = true;
         this.sb.setLength(0);
+        this.text = null;
         this.bindings.clear();
     }
 
+    /**
+     * Clear both string and bindings, releasing any storage grown beyond the given limits so a
+     * recycled BoundString cannot hold on to a rare, oversized statement.
+     *
+     * @param maxChars    largest string capacity to retain
+     * @param maxBindings largest binding capacity to retain
+     */
+    public void clear(int maxChars, int maxBindings) {
+        clear();
+        if (this.sb.capacity() > maxChars) {
+            this.sb = new StringBuilder(maxChars);
+        }
+        this.bindings.trimTo(maxBindings);
+    }
+
+    /**
+     * Number of characters the buffer holds before it must grow.
+     */
+    int capacity() {
+        return sb.capacity();
+    }
+
     /**
      * Verify placeholder count against bindings count.
      *
@@ -159,7 +432,9 @@ public class BoundString {
      * @param ct Number of characters to excise
      */
     public void chop(int ct) {
+        this.hashed = false;
         this.sb.setLength(Math.max(0, this.sb.length() - ct));
+        this.text = null;
     }
 
     /**
@@ -169,55 +444,158 @@ public class BoundString {
      * @return String with toString versions of bound values inserted back into the String.
      */
     public String toString() {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder out = new StringBuilder(sb.length() + bindings.size() * 8);
+        try {
+            renderTo(out);
+        } catch (IOException ex) {
+            throw new InconceivableException("StringBuilder does not throw IOException.", ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the equivalent of toString() to an Appendable, streaming the string and each bound
+     * value in place of its marker without building an intermediate copy. A marker having no
+     * binding is written as a marker.
+     *
+     * @param out destination of the rendered string
+     * @throws IOException if the Appendable fails
+     */
+    public void renderTo(Appendable out) throws IOException {
+        int len = sb.length();
+        int from = 0;
         int marker = 0;
-        char quot = '\'';
-        char[] sql = this.getString().toCharArray();
-        for (char c : sql) {
-            if (c == '?') {
-                UncheckedBinding binding = getBindings().get(marker++);
-                if (binding.getObj() == null) {
-                    sb.append("null");
+        for (int i = 0; i < len; i++) {
+            if (sb.charAt(i) == PLACEHOLDER) {
+                out.append(sb, from, i);
+                from = i + 1;
+                byte tag = marker < bindings.size() ? bindings.tagOf(marker) : BindingList.OBJECT;
+                if (tag == BindingList.INT || tag == BindingList.LONG) {
+                    out.append(Long.toString(bindings.getLong(marker++)));
+                    continue;
+                }
+                UncheckedBinding binding = marker < bindings.size() ? bindings.get(marker) : null;
+                marker++;
+                if (binding == null) {
+                    out.append(PLACEHOLDER);
                 } else {
-                    Object obj = binding.getObj();
-                    Class<?> type = binding.getType();
-                    if (type == Integer.class || type == int.class || type == Long.class
-                            || type == long.class) {
-                        sb.append(obj.toString());
-                    } else if (DateTime.class == obj.getClass()) {
-                        sb.append(formatDate((DateTime) obj));
-                    } else if (Date.class.isAssignableFrom(obj.getClass())) {
-                        sb.append(formatDate(new DateTime(((Date) obj).getTime())));
-                    } else {
-                        sb.append(quot);
-                        sb.append(binding.getObj().toString());
-                        sb.append(quot);
-                    }
+                    renderValue(out, binding);
                 }
+            }
+        }
+        out.append(sb, from, len);
+    }
+
+    private static void renderValue(Appendable out, UncheckedBinding binding) throws IOException {
+        Object obj = binding.getObj();
+        if (obj == null) {
+            out.append("null");
+            return;
+        }
+        Class<?> type = binding.getType();
+        if (type == Integer.class || type == int.class || type == Long.class
+                || type == long.class) {
+            out.append(obj.toString());
+        } else if (DateTime.class == obj.getClass()) {
+            DateTime dt = (DateTime) obj;
+            formatDate(out, dt.toMillis(), dt.config().getOutputTimeZone());
+        } else if (obj instanceof Date) {
+            formatDate(out, ((Date) obj).getTime(), DateTimeConfig.getGlobalDefault()
+                    .getOutputTimeZone());
+        } else {
+            out.append(QUOT);
+            if (obj instanceof CharSequence) {
+                out.append((CharSequence) obj);
             } else {
-                sb.append(c);
+                out.append(obj.toString());
+            }
+            out.append(QUOT);
+        }
+    }
+
+    /**
+     * Raise 31 to a power, as String.hashCode() would weigh a prefix followed by n characters.
+     */
+    private static int pow31(int n) {
+        int result = 1;
+        int base = 31;
+        while (n > 0) {
+            if ((n & 1) != 0) {
+                result *= base;
             }
+            base *= base;
+            n >>= 1;
         }
-        return sb.toString();
+        return result;
     }
 
     /**
-     * Format a date, chopping off zeros.
+     * Format a date as 'MM/dd/yyyy HH:mm:ss.SSS', chopping off zeros. Digits are written
+     * directly from the civil date, so no pattern is parsed and nothing is allocated. Years
+     * outside 1583 to 9999 are left to DateTimeFormat, and their zeros chopped the same way.
      *
-     * @param dt Date to format
-     * @return a string version of a date with zeros truncated.
+     * @param out    destination of the formatted date
+     * @param millis milliseconds since the epoch
+     * @param tz     time zone in which to express the date
+     * @throws IOException if the Appendable fails
      */
-    private String formatDate(DateTime dt) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(QUOT);
-        sb.append(DateTimeFormat.format(BoundString.date2ms, dt));
-        if (sb.substring(11).equals(" 00:00:00.000")) {
-            sb.setLength(11);
-        } else if (sb.substring(20).equals(".000")) {
-            sb.setLength(20);
+    private static void formatDate(Appendable out, long millis, TimeZone tz) throws IOException {
+        long local = millis + tz.getOffset(millis);
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int msOfDay = (int) (local - days * MILLIS_PER_DAY);
+        // Civil date from days since 1970-01-01, after Howard Hinnant's algorithm.
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1583 || year > 9999) {
+            String text = DateTimeFormat.format(date2ms, new DateTime(millis), tz);
+            int len = text.length();
+            if (text.endsWith(" 00:00:00.000")) {
+                len -= 13;
+            } else if (text.endsWith(".000")) {
+                len -= 4;
+            }
+            out.append(QUOT);
+            out.append(text, 0, len);
+            out.append(QUOT);
+            return;
         }
-        sb.append(QUOT);
-        return sb.toString();
+        out.append(QUOT);
+        appendDigits(out, month, 2);
+        out.append('/');
+        appendDigits(out, day, 2);
+        out.append('/');
+        appendDigits(out, (int) year, 4);
+        if (msOfDay != 0) {
+            out.append(' ');
+            appendDigits(out, msOfDay / 3600000, 2);
+            out.append(':');
+            appendDigits(out, msOfDay / 60000 % 60, 2);
+            out.append(':');
+            appendDigits(out, msOfDay / 1000 % 60, 2);
+            if (msOfDay % 1000 != 0) {
+                out.append('.');
+                appendDigits(out, msOfDay % 1000, 3);
+            }
+        }
+        out.append(QUOT);
+    }
+
+    private static void appendDigits(Appendable out, int value, int width) throws IOException {
+        for (int scale = width == 4 ? 1000 : width == 3 ? 100 : 10; scale > 0; scale /= 10) {
+            out.append((char) ('0' + value / scale % 10));
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
     }
 
 }
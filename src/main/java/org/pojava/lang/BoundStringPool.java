@@ -0,0 +1,116 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+/**
+ * A BoundStringPool recycles BoundStrings within each thread, so code that builds and discards
+ * a statement per call reuses buffers that have already grown to a useful size.
+ * <p/>
+ * Each thread keeps its own small stack of released BoundStrings, so acquiring and releasing
+ * never contend. A released BoundString is cleared, and any buffer grown beyond the pool's
+ * limits is trimmed, so a rare oversized statement is not hoarded. A BoundString must not be
+ * used after it is released, nor released twice.
+ *
+ * @author John Pile
+ */
+public class BoundStringPool {
+
+    private final int perThread;
+    private final int maxChars;
+    private final int maxBindings;
+
+    private final ThreadLocal<Stack> stacks = new ThreadLocal<Stack>() {
+        @Override
+        protected Stack initialValue() {
+            return new Stack(perThread);
+        }
+    };
+
+    /**
+     * Construct a pool retaining up to 8 BoundStrings per thread, each up to 4096 characters and
+     * 256 bindings.
+     */
+    public BoundStringPool() {
+        this(8, 4096, 256);
+    }
+
+    /**
+     * Construct a pool.
+     *
+     * @param perThread   most BoundStrings retained by each thread
+     * @param maxChars    largest string capacity retained by a released BoundString
+     * @param maxBindings largest binding capacity retained by a released BoundString
+     */
+    public BoundStringPool(int perThread, int maxChars, int maxBindings) {
+        if (perThread < 1) {
+            throw new IllegalArgumentException("A pool must retain at least one BoundString.");
+        }
+        this.perThread = perThread;
+        this.maxChars = maxChars;
+        this.maxBindings = maxBindings;
+    }
+
+    /**
+     * Return an empty BoundString, recycled if this thread has one.
+     *
+     * @return an empty BoundString owned by the caller until released
+     */
+    public BoundString acquire() {
+        Stack stack = stacks.get();
+        if (stack.size == 0) {
+            return new BoundString();
+        }
+        BoundString bs = stack.items[--stack.size];
+        stack.items[stack.size] = null;
+        return bs;
+    }
+
+    /**
+     * Clear a BoundString and keep it for reuse by this thread, unless this thread already
+     * holds as many as the pool retains.
+     *
+     * @param bs BoundString no longer in use
+     */
+    public void release(BoundString bs) {
+        Stack stack = stacks.get();
+        if (stack.size < stack.items.length) {
+            bs.clear(maxChars, maxBindings);
+            stack.items[stack.size++] = bs;
+        }
+    }
+
+    /**
+     * Number of BoundStrings held for the calling thread.
+     */
+    public int available() {
+        return stacks.get().size;
+    }
+
+    /**
+     * Released BoundStrings held by one thread.
+     */
+    private static class Stack {
+
+        private final BoundString[] items;
+        private int size;
+
+        Stack(int capacity) {
+            this.items = new BoundString[capacity];
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BoundTemplate is a String with placeholders, parsed once so that it can be bound any
+ * number of times without being scanned again.
+ * <p/>
+ * Placeholders may be positional (?) or named (:name). Named placeholders are rewritten as
+ * positional ones, and a name used more than once maps to each of its positions. Placeholder
+ * characters inside quoted literals, quoted identifiers and comments are ignored, as is the
+ * :: cast operator.
+ *
+ * @author John Pile
+ */
+public class BoundTemplate {
+
+    private static final char PLACEHOLDER = '?';
+    private static final int[] NONE = new int[0];
+
+    private final String source;
+    private final String sql;
+    private final int[] offsets;
+    private final String[] names;
+    private final Map<String, int[]> positions = new HashMap<String, int[]>();
+
+    /**
+     * Parse a template.
+     *
+     * @param source text holding positional and named placeholders
+     */
+    public BoundTemplate(String source) {
+        this.source = source;
+        StringBuilder sb = new StringBuilder(source.length());
+        List<Integer> offsetList = new ArrayList<Integer>();
+        List<String> nameList = new ArrayList<String>();
+        int len = source.length();
+        int i = 0;
+        while (i < len) {
+            char c = source.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = source.indexOf(c, i + 1);
+                // A doubled quote is an escaped quote within the same literal.
+                while (end >= 0 && end + 1 < len && source.charAt(end + 1) == c) {
+                    end = source.indexOf(c, end + 2);
+                }
+                end = end < 0 ? len : end + 1;
+                sb.append(source, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < len && source.charAt(i + 1) == '-') {
+                int end = source.indexOf('\n', i);
+                end = end < 0 ? len : end;
+                sb.append(source, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < len && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? len : end + 2;
+                sb.append(source, i, end);
+                i = end;
+            } else if (c == ':' && i + 1 < len && source.charAt(i + 1) == ':') {
+                sb.append("::");
+                i += 2;
+            } else if (c == ':' && i + 1 < len
+                    && Character.isJavaIdentifierStart(source.charAt(i + 1))) {
+                int end = i + 2;
+                while (end < len && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                offsetList.add(sb.length());
+                nameList.add(source.substring(i + 1, end));
+                sb.append(PLACEHOLDER);
+                i = end;
+            } else {
+                if (c == PLACEHOLDER) {
+                    offsetList.add(sb.length());
+                    nameList.add(null);
+                }
+                sb.append(c);
+                i++;
+            }
+        }
+        this.sql = sb.toString();
+        this.offsets = new int[offsetList.size()];
+        this.names = nameList.toArray(new String[nameList.size()]);
+        for (int p = 0; p < offsets.length; p++) {
+            offsets[p] = offsetList.get(p);
+            String name = names[p];
+            if (name != null) {
+                int[] found = positions.get(name);
+                int[] grown = new int[found == null ? 1 : found.length + 1];
+                if (found != null) {
+                    System.arraycopy(found, 0, grown, 0, found.length);
+                }
+                grown[grown.length - 1] = p;
+                positions.put(name, grown);
+            }
+        }
+    }
+
+    /**
+     * Return the template as originally written.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Return the template with every placeholder in positional form.
+     */
+    public String getString() {
+        return sql;
+    }
+
+    /**
+     * Number of placeholders.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Offset of a placeholder within getString().
+     *
+     * @param index zero-based placeholder index
+     * @return offset of the placeholder character
+     */
+    public int offsetOf(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Name of a placeholder.
+     *
+     * @param index zero-based placeholder index
+     * @return name of placeholder, or null if positional
+     */
+    public String nameOf(int index) {
+        return names[index];
+    }
+
+    /**
+     * Positions at which a named placeholder appears. The returned array must not be modified.
+     *
+     * @param name name of placeholder, without its colon
+     * @return zero-based placeholder indexes, empty if the name does not appear
+     */
+    public int[] indexesOf(String name) {
+        int[] found = positions.get(name);
+        return found == null ? NONE : found;
+    }
+
+    /**
+     * Begin a new set of bindings for this template.
+     *
+     * @return empty bindings, one slot per placeholder
+     */
+    public BoundParameters bind() {
+        return new BoundParameters(this);
+    }
+
+}
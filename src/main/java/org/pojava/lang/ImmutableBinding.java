@@ -0,0 +1,101 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An ImmutableBinding is a Binding whose value cannot be changed, so a single instance may be
+ * shared by every caller needing the same type and value. Adaptors with a small domain of
+ * results, such as the Booleans, return such shared instances instead of allocating.
+ *
+ * @author John Pile
+ */
+public class ImmutableBinding<T> extends Binding<T> {
+
+    /**
+     * Shared binding of Boolean.TRUE.
+     */
+    public static final Binding<Boolean> TRUE = new ImmutableBinding<Boolean>(Boolean.class,
+            Boolean.TRUE);
+
+    /**
+     * Shared binding of Boolean.FALSE.
+     */
+    public static final Binding<Boolean> FALSE = new ImmutableBinding<Boolean>(Boolean.class,
+            Boolean.FALSE);
+
+    private static final Map<Class<?>, Binding<?>> nulls = new ConcurrentHashMap<Class<?>, Binding<?>>();
+
+    /**
+     * Construct an immutable Binding.
+     *
+     * @param type Class of bound object
+     * @param obj  Bound object
+     */
+    public ImmutableBinding(Class<T> type, T obj) {
+        super(type, obj);
+    }
+
+    /**
+     * Return the shared binding of a null of the given type.
+     *
+     * @param type class of the null
+     * @return an immutable binding of null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Binding<T> nullOf(Class<T> type) {
+        Binding<T> binding = (Binding<T>) nulls.get(type);
+        if (binding == null) {
+            binding = new ImmutableBinding<T>(type, null);
+            nulls.put(type, binding);
+        }
+        return binding;
+    }
+
+    /**
+     * Return the shared binding of a Boolean value, which may be null.
+     */
+    public static Binding<Boolean> valueOf(Boolean value) {
+        if (value == null) {
+            return nullOf(Boolean.class);
+        }
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * An ImmutableBinding cannot be changed.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setObj(Object obj) {
+        throw new UnsupportedOperationException("An ImmutableBinding cannot be changed.");
+    }
+
+    /**
+     * An ImmutableBinding cannot be changed.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setValue(T obj) {
+        throw new UnsupportedOperationException("An ImmutableBinding cannot be changed.");
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+/**
+ * An IntBinding holds a primitive int without boxing it. It reports its type as Integer, and
+ * boxes its value only when read through getObj().
+ *
+ * @author John Pile
+ */
+public class IntBinding extends PrimitiveBinding {
+
+    private int value;
+
+    /**
+     * Construct a binding from a primitive value.
+     *
+     * @param value value to bind
+     */
+    public IntBinding(int value) {
+        super(Integer.class);
+        this.value = value;
+    }
+
+    /**
+     * Retrieve the value without boxing.
+     */
+    public int getInt() {
+        return value;
+    }
+
+    /**
+     * Store a new value without boxing.
+     */
+    public void setInt(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object getObj() {
+        return value;
+    }
+
+    /**
+     * Store a Number, refusing one with a fraction or beyond the range of int.
+     */
+    @Override
+    protected void setNumber(Number number) {
+        this.value = (int) exactLong(number, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+/**
+ * A LongBinding holds a primitive long without boxing it. It reports its type as Long, and
+ * boxes its value only when read through getObj().
+ *
+ * @author John Pile
+ */
+public class LongBinding extends PrimitiveBinding {
+
+    private long value;
+
+    /**
+     * Construct a binding from a primitive value.
+     *
+     * @param value value to bind
+     */
+    public LongBinding(long value) {
+        super(Long.class);
+        this.value = value;
+    }
+
+    /**
+     * Retrieve the value without boxing.
+     */
+    public long getLong() {
+        return value;
+    }
+
+    /**
+     * Store a new value without boxing.
+     */
+    public void setLong(long value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object getObj() {
+        return value;
+    }
+
+    /**
+     * Store a Number, refusing one with a fraction or beyond the range of long.
+     */
+    @Override
+    protected void setNumber(Number number) {
+        this.value = exactLong(number, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+}
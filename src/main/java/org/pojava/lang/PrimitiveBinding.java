@@ -0,0 +1,88 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.util.ConversionService;
+
+/**
+ * A PrimitiveBinding holds a primitive number without boxing it. It reports its type as the
+ * wrapper class, and boxes its value only when read through getObj().
+ * <p/>
+ * Any Number may be stored through setObj(), provided the primitive can hold it exactly.
+ *
+ * @author John Pile
+ */
+public abstract class PrimitiveBinding extends UncheckedBinding {
+
+    /**
+     * Construct a binding reporting the given wrapper type.
+     *
+     * @param type wrapper class of the primitive held
+     */
+    protected PrimitiveBinding(Class<? extends Number> type) {
+        super(type, null);
+    }
+
+    @Override
+    public abstract Object getObj();
+
+    /**
+     * Store a new value from any Number.
+     *
+     * @param obj a non-null Number that the primitive can hold exactly
+     * @throws IllegalArgumentException if obj is not a Number, or would lose its value
+     */
+    @Override
+    public void setObj(Object obj) {
+        if (!(obj instanceof Number)) {
+            throw new IllegalArgumentException(getClass().getSimpleName() + " cannot hold "
+                    + (obj == null ? "null" : obj.getClass().getName()) + ".");
+        }
+        setNumber((Number) obj);
+    }
+
+    /**
+     * Store a non-null Number in the primitive.
+     *
+     * @param number value to store
+     * @throws IllegalArgumentException if the primitive cannot hold the value exactly
+     */
+    protected abstract void setNumber(Number number);
+
+    /**
+     * The value of a Number as a long, provided it is whole and within a range.
+     *
+     * @param number a non-null Number
+     * @param min    smallest acceptable value
+     * @param max    largest acceptable value
+     * @return the value as a long
+     * @throws IllegalArgumentException if the value has a fraction or lies outside the range
+     */
+    protected final long exactLong(Number number, long min, long max) {
+        try {
+            return ConversionService.exactLong(number, min, max);
+        } catch (ArithmeticException ex) {
+            throw cannotHold(number);
+        }
+    }
+
+    private IllegalArgumentException cannotHold(Number number) {
+        return new IllegalArgumentException(getClass().getSimpleName() + " cannot hold "
+                + number + ".");
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.pojava.lang;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A PropertyLayout fixes the order of a class's properties so that they can be addressed by
+ * index rather than by name. The getters, setters and property types are resolved once, when
+ * the layout is constructed, and are held in parallel arrays.
+ *
+ * @author John Pile
+ */
+public class PropertyLayout {
+
+    private final Class<?> type;
+    private final String[] names;
+    private final Method[] getters;
+    private final Method[] setters;
+    private final Class<?>[] types;
+
+    /**
+     * Construct a layout of every property having both a getter and a setter, ordered by
+     * property name.
+     *
+     * @param accessors getters and setters of a class
+     */
+    public PropertyLayout(Accessors accessors) {
+        this(accessors, readWriteProperties(accessors));
+    }
+
+    /**
+     * Construct a layout of the named properties in the order given. Each property must have a
+     * getter. A property lacking a setter is held with a null setter.
+     *
+     * @param accessors  getters and setters of a class
+     * @param properties property names in the order they should be laid out
+     */
+    public PropertyLayout(Accessors accessors, String[] properties) {
+        this.type = accessors.getType();
+        int size = properties.length;
+        this.names = new String[size];
+        this.getters = new Method[size];
+        this.setters = new Method[size];
+        this.types = new Class<?>[size];
+        Map<String, Method> getterMap = accessors.getGetters();
+        Map<String, Method> setterMap = accessors.getSetters();
+        for (int i = 0; i < size; i++) {
+            String name = properties[i];
+            Method getter = getterMap.get(name);
+            if (getter == null || getter.getParameterTypes().length != 0) {
+                throw new IllegalArgumentException("No getter found for property '" + name
+                        + "'.");
+            }
+            Method setter = setterMap.get(name);
+            if (setter != null && setter.getParameterTypes().length != 1) {
+                setter = null;
+            }
+            names[i] = name;
+            getters[i] = getter;
+            setters[i] = setter;
+            types[i] = getter.getReturnType();
+        }
+    }
+
+    private static String[] readWriteProperties(Accessors accessors) {
+        List<String> list = new ArrayList<String>();
+        Map<String, Method> setterMap = accessors.getSetters();
+        for (Map.Entry<String, Method> entry : accessors.getGetters().entrySet()) {
+            Method setter = setterMap.get(entry.getKey());
+            if (entry.getValue().getParameterTypes().length == 0 && setter != null
+                    && setter.getParameterTypes().length == 1) {
+                list.add(entry.getKey());
+            }
+        }
+        Collections.sort(list);
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Class whose properties are laid out.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Number of properties in the layout.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Offset of a property in the layout.
+     *
+     * @param name property name
+     * @return zero-based offset, or -1 if the property is not in the layout
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public Method getGetter(int i) {
+        return getters[i];
+    }
+
+    /**
+     * Setter of a property.
+     *
+     * @param i offset of property
+     * @return setter method, or null if the property is read-only
+     */
+    public Method getSetter(int i) {
+        return setters[i];
+    }
+
+    /**
+     * Type of a property, as returned by its getter.
+     *
+     * @param i offset of property
+     * @return Class of the property
+     */
+    public Class<?> getPropertyType(int i) {
+        return types[i];
+    }
+
+}
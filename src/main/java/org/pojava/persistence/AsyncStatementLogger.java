@@ -0,0 +1,174 @@
+package org.pojava.persistence;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.concurrent.MpscRingQueue;
+import org.pojava.concurrent.StripedCounter;
+import org.pojava.lang.BoundRope;
+import org.pojava.lang.BoundString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An AsyncStatementLogger logs statements with their values in-line, rendering them on a
+ * background thread rather than on the thread executing them.
+ * <p/>
+ * Capturing a statement takes an immutable snapshot of it and offers the snapshot to a bounded
+ * lock-free queue. When the queue is full the statement is dropped and counted, so a burst of
+ * logging never delays the caller. Nothing is captured when the logger would discard the
+ * message anyway. While idle, the rendering thread sleeps until a statement arrives.
+ *
+ * @author John Pile
+ */
+public class AsyncStatementLogger {
+
+    /**
+     * Longest the idle renderer sleeps between checks, should a wake ever be missed.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Logger logger;
+    private final Level level;
+    private final MpscRingQueue<BoundRope> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong logged = new AtomicLong();
+    private final Thread renderer;
+    /**
+     * Callers between checking running and finishing their offer.
+     */
+    private final StripedCounter offering = new StripedCounter();
+    private volatile boolean running = true;
+    private volatile boolean stopping;
+    private volatile boolean sleeping;
+
+    /**
+     * Construct a logger and start its rendering thread.
+     *
+     * @param logger   destination of rendered statements
+     * @param level    level at which statements are logged
+     * @param capacity number of statements that may await rendering
+     */
+    public AsyncStatementLogger(Logger logger, Level level, int capacity) {
+        this.logger = logger;
+        this.level = level;
+        this.queue = new MpscRingQueue<BoundRope>(capacity);
+        this.renderer = new Thread(new Runnable() {
+            public void run() {
+                render();
+            }
+        }, "AsyncStatementLogger");
+        this.renderer.setDaemon(true);
+        this.renderer.start();
+    }
+
+    /**
+     * Capture a statement for logging.
+     *
+     * @param bs statement and values as executed
+     * @return true if queued, false if discarded by level, closed, or dropped on overflow
+     */
+    public boolean log(BoundString bs) {
+        if (!logger.isLoggable(level)) {
+            return false;
+        }
+        offering.increment();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (!queue.offer(bs.snapshot())) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (sleeping) {
+                LockSupport.unpark(renderer);
+            }
+            return true;
+        } finally {
+            offering.add(-1);
+        }
+    }
+
+    /**
+     * Number of statements dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Number of statements rendered and logged.
+     */
+    public long getLogged() {
+        return logged.get();
+    }
+
+    /**
+     * Stop accepting statements, log those already captured, and stop the rendering thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread to finish
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        // A caller that saw running before it turned false may still be offering. Let it
+        // finish, so its statement is queued before the renderer makes its final drain.
+        while (offering.sum() != 0) {
+            Thread.yield();
+        }
+        stopping = true;
+        LockSupport.unpark(renderer);
+        renderer.join();
+    }
+
+    private void render() {
+        while (!stopping) {
+            if (!drain()) {
+                sleeping = true;
+                // Check again after announcing sleep, so a wake between the two is not lost.
+                if (queue.isEmpty() && !stopping) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Log every captured statement, returning false if there were none.
+     */
+    private boolean drain() {
+        boolean any = false;
+        BoundRope rope;
+        while ((rope = queue.poll()) != null) {
+            any = true;
+            try {
+                logger.log(level, rope.toString());
+                logged.incrementAndGet();
+            } catch (Throwable ex) {
+                // Even an Error must not kill the renderer, which would strand the queue.
+                logger.log(Level.WARNING, "Failed to render statement.", ex);
+            }
+        }
+        return any;
+    }
+
+}
@@ -0,0 +1,296 @@
+package org.pojava.persistence;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.BoundString;
+import org.pojava.lang.UncheckedBinding;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A BoundBatch holds one INSERT or UPSERT statement along with any number of rows of values to
+ * bind to it. Rows are kept side by side in a single array, so adding a row allocates no
+ * BoundString or Binding objects.
+ * <p/>
+ * The statement is given as a head ending in VALUES, an optional tail (such as an ON CONFLICT
+ * or ON DUPLICATE KEY clause), and the type of each column. A batch may be executed as a
+ * sequence of JDBC addBatch calls against the single-row statement, or as multi-row
+ * statements of the form VALUES (...), (...), each holding as many rows as fit within a
+ * maximum parameter count.
+ *
+ * @author John Pile
+ */
+public class BoundBatch {
+
+    private final String head;
+    private final String tail;
+    private final Class<?>[] types;
+    private final String rowText;
+    private final JdbcBinder binder;
+    private Object[] values;
+    private int rows;
+
+    /**
+     * Construct an empty batch.
+     *
+     * @param head  statement text up to and including VALUES
+     * @param types type of each column, in placeholder order
+     */
+    public BoundBatch(String head, Class<?>... types) {
+        this(head, null, types);
+    }
+
+    /**
+     * Construct an empty batch whose statement ends with a tail following the rows of values.
+     *
+     * @param head  statement text up to and including VALUES
+     * @param tail  statement text following the rows, or null
+     * @param types type of each column, in placeholder order
+     */
+    public BoundBatch(String head, String tail, Class<?>... types) {
+        this(head, tail, new JdbcBinder(), types);
+    }
+
+    /**
+     * Construct an empty batch whose values are set by the given binder.
+     *
+     * @param head   statement text up to and including VALUES
+     * @param tail   statement text following the rows, or null
+     * @param binder sets each value, converting it through the binder's adaptor
+     * @param types  type of each column, in placeholder order
+     */
+    public BoundBatch(String head, String tail, JdbcBinder binder, Class<?>... types) {
+        if (types.length == 0) {
+            throw new IllegalArgumentException("A batch requires at least one column.");
+        }
+        this.head = head;
+        this.tail = tail;
+        this.binder = binder;
+        this.types = types.clone();
+        StringBuilder sb = new StringBuilder(types.length * 3 + 1);
+        sb.append('(');
+        for (int i = 0; i < types.length; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        this.rowText = sb.append(')').toString();
+        this.values = new Object[types.length * 16];
+    }
+
+    /**
+     * Add a row of values.
+     *
+     * @param row one value per column, in placeholder order
+     */
+    public void addRow(Object... row) {
+        if (row.length != types.length) {
+            throw new IllegalArgumentException("Expected " + types.length + " values but got "
+                    + row.length + ".");
+        }
+        int offset = rows * types.length;
+        if (offset + row.length > values.length) {
+            Object[] grown = new Object[values.length * 2];
+            System.arraycopy(values, 0, grown, 0, offset);
+            values = grown;
+        }
+        System.arraycopy(row, 0, values, offset, row.length);
+        rows++;
+    }
+
+    /**
+     * Return a value previously added.
+     *
+     * @param row    zero-based row
+     * @param column zero-based column
+     * @return value at that row and column
+     */
+    public Object get(int row, int column) {
+        if (row >= rows || column >= types.length) {
+            throw new IndexOutOfBoundsException("No value at row " + row + ", column " + column
+                    + ".");
+        }
+        return values[row * types.length + column];
+    }
+
+    /**
+     * Number of rows.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Number of columns in each row.
+     */
+    public int width() {
+        return types.length;
+    }
+
+    /**
+     * Discard all rows, keeping the storage for reuse.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, rows * types.length, null);
+        rows = 0;
+    }
+
+    /**
+     * Return the statement text for a single row, suitable for addBatch.
+     */
+    public String getSql() {
+        return getSql(1);
+    }
+
+    /**
+     * Return the statement text for a number of rows.
+     *
+     * @param rowCount number of rows of placeholders
+     * @return head, rows of placeholders, and tail
+     */
+    public String getSql(int rowCount) {
+        StringBuilder sb = new StringBuilder(head.length() + rowCount * (rowText.length() + 2)
+                + (tail == null ? 0 : tail.length() + 1));
+        sb.append(head);
+        for (int r = 0; r < rowCount; r++) {
+            sb.append(r == 0 ? " " : ", ").append(rowText);
+        }
+        if (tail != null) {
+            sb.append(' ').append(tail);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Number of rows placed in each multi-row statement.
+     *
+     * @param maxParameters largest number of placeholders allowed in one statement
+     * @return rows per statement, at least one
+     * @throws IllegalArgumentException if a single row has more than maxParameters values
+     */
+    public int rowsPerStatement(int maxParameters) {
+        if (maxParameters < types.length) {
+            throw new IllegalArgumentException("A row of " + types.length
+                    + " values exceeds the limit of " + maxParameters + " parameters.");
+        }
+        return maxParameters / types.length;
+    }
+
+    /**
+     * Render a range of rows as one multi-row statement.
+     *
+     * @param fromRow first row, inclusive
+     * @param toRow   last row, exclusive
+     * @return a BoundString holding the rows' values
+     * @throws IndexOutOfBoundsException if the range is negative, reversed or beyond size()
+     */
+    public BoundString toBoundString(int fromRow, int toRow) {
+        if (fromRow < 0 || fromRow > toRow || toRow > rows) {
+            throw new IndexOutOfBoundsException("Rows " + fromRow + " to " + toRow
+                    + " do not lie within 0 to " + rows + ".");
+        }
+        BoundString bs = new BoundString(getSql(toRow - fromRow));
+        int width = types.length;
+        for (int i = fromRow * width; i < toRow * width; i++) {
+            bs.addBinding(new UncheckedBinding(types[i % width], values[i]));
+        }
+        return bs;
+    }
+
+    /**
+     * Render every row as multi-row statements, none exceeding a maximum parameter count.
+     *
+     * @param maxParameters largest number of placeholders allowed in one statement
+     * @return one BoundString per chunk of rows
+     */
+    public List<BoundString> toBoundStrings(int maxParameters) {
+        int chunk = rowsPerStatement(maxParameters);
+        List<BoundString> list = new ArrayList<BoundString>((rows + chunk - 1) / chunk);
+        for (int from = 0; from < rows; from += chunk) {
+            list.add(toBoundString(from, Math.min(rows, from + chunk)));
+        }
+        return list;
+    }
+
+    /**
+     * Bind each row to the single-row statement and add it to the statement's batch.
+     *
+     * @param ps statement prepared from getSql()
+     * @throws SQLException if a value cannot be bound
+     */
+    public void addBatch(PreparedStatement ps) throws SQLException {
+        for (int r = 0; r < rows; r++) {
+            bindRows(ps, r, r + 1);
+            ps.addBatch();
+        }
+    }
+
+    /**
+     * Execute every row through JDBC batching of the single-row statement.
+     *
+     * @param cache statements of the connection to execute against
+     * @return update counts, one per row
+     * @throws SQLException if the batch fails
+     */
+    public int[] executeBatch(StatementCache cache) throws SQLException {
+        PreparedStatement ps = cache.prepare(getSql());
+        addBatch(ps);
+        return ps.executeBatch();
+    }
+
+    /**
+     * Execute every row as multi-row statements, none exceeding a maximum parameter count.
+     * Every full chunk shares the same statement text, so it is prepared only once.
+     *
+     * @param cache         statements of the connection to execute against
+     * @param maxParameters largest number of placeholders allowed in one statement
+     * @return total update count
+     * @throws SQLException if a statement fails
+     */
+    public int executeMultiRow(StatementCache cache, int maxParameters) throws SQLException {
+        int chunk = rowsPerStatement(maxParameters);
+        String fullSql = null;
+        int updated = 0;
+        for (int from = 0; from < rows; from += chunk) {
+            int to = Math.min(rows, from + chunk);
+            String sql;
+            if (to - from == chunk) {
+                if (fullSql == null) {
+                    fullSql = getSql(chunk);
+                }
+                sql = fullSql;
+            } else {
+                sql = getSql(to - from);
+            }
+            PreparedStatement ps = cache.prepare(sql);
+            bindRows(ps, from, to);
+            updated += ps.executeUpdate();
+        }
+        return updated;
+    }
+
+    private void bindRows(PreparedStatement ps, int fromRow, int toRow) throws SQLException {
+        int width = types.length;
+        int param = 1;
+        for (int i = fromRow * width; i < toRow * width; i++) {
+            binder.bind(ps, param++, types[i % width], values[i]);
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+package org.pojava.persistence;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+import org.pojava.lang.BindingList;
+import org.pojava.lang.BoundString;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.transformation.DefaultAdaptor;
+import org.pojava.transformation.UncheckedAdaptor;
+import org.pojava.util.ReflectionTool;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JdbcBinder binds the values of a BoundString to the parameters of a PreparedStatement.
+ * <p/>
+ * Each binding's type is resolved once to the typed setter for that class, such as setInt,
+ * setLong or setTimestamp, along with the SQL type used by setNull. Classes without a setter of
+ * their own use that of their nearest superclass, and otherwise setObject. An optional adaptor
+ * converts each value in the same pass, just before it is set. A DefaultAdaptor's conversions
+ * are applied straight to the value, without creating a Binding; any other adaptor also sees
+ * nulls, so it may choose the type they are bound with. Primitive values held by a BindingList
+ * are set without boxing, unless an adaptor other than a DefaultAdaptor could change them.
+ *
+ * @author John Pile
+ */
+public class JdbcBinder {
+
+    private static final Map<Class<?>, Setter> setters = new ConcurrentHashMap<Class<?>, Setter>();
+
+    private static final Setter OBJECT = new Setter(Types.NULL) {
+        void set(PreparedStatement ps, int index, Object value) throws SQLException {
+            ps.setObject(index, value);
+        }
+    };
+
+    static {
+        Setter string = new Setter(Types.VARCHAR) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setString(index, value.toString());
+            }
+        };
+        register(String.class, string);
+        register(Character.class, string);
+        register(char.class, string);
+        Setter integer = new Setter(Types.INTEGER) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setInt(index, (Integer) value);
+            }
+        };
+        register(Integer.class, integer);
+        register(int.class, integer);
+        Setter bigint = new Setter(Types.BIGINT) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setLong(index, (Long) value);
+            }
+        };
+        register(Long.class, bigint);
+        register(long.class, bigint);
+        Setter smallint = new Setter(Types.SMALLINT) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setShort(index, (Short) value);
+            }
+        };
+        register(Short.class, smallint);
+        register(short.class, smallint);
+        Setter tinyint = new Setter(Types.TINYINT) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setByte(index, (Byte) value);
+            }
+        };
+        register(Byte.class, tinyint);
+        register(byte.class, tinyint);
+        Setter dbl = new Setter(Types.DOUBLE) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setDouble(index, (Double) value);
+            }
+        };
+        register(Double.class, dbl);
+        register(double.class, dbl);
+        Setter real = new Setter(Types.REAL) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setFloat(index, (Float) value);
+            }
+        };
+        register(Float.class, real);
+        register(float.class, real);
+        Setter bool = new Setter(Types.BOOLEAN) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setBoolean(index, (Boolean) value);
+            }
+        };
+        register(Boolean.class, bool);
+        register(boolean.class, bool);
+        register(BigDecimal.class, new Setter(Types.DECIMAL) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setBigDecimal(index, (BigDecimal) value);
+            }
+        });
+        register(byte[].class, new Setter(Types.VARBINARY) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setBytes(index, (byte[]) value);
+            }
+        });
+        register(Timestamp.class, new Setter(Types.TIMESTAMP) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setTimestamp(index, (Timestamp) value);
+            }
+        });
+        register(java.sql.Date.class, new Setter(Types.DATE) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setDate(index, (java.sql.Date) value);
+            }
+        });
+        register(Time.class, new Setter(Types.TIME) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setTime(index, (Time) value);
+            }
+        });
+        register(Date.class, new Setter(Types.TIMESTAMP) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setTimestamp(index, value instanceof Timestamp ? (Timestamp) value
+                        : new Timestamp(((Date) value).getTime()));
+            }
+        });
+        register(DateTime.class, new Setter(Types.TIMESTAMP) {
+            void set(PreparedStatement ps, int index, Object value) throws SQLException {
+                ps.setTimestamp(index, ((DateTime) value).toTimestamp());
+            }
+        });
+    }
+
+    private final UncheckedAdaptor adaptor;
+    private final boolean defaultRules;
+    private final boolean primitivesPass;
+
+    /**
+     * Construct a binder that sets values as they are.
+     */
+    public JdbcBinder() {
+        this(null);
+    }
+
+    /**
+     * Construct a binder that passes each value through an adaptor.
+     *
+     * @param adaptor outbound conversion, or null
+     */
+    public JdbcBinder(UncheckedAdaptor adaptor) {
+        this.adaptor = adaptor;
+        this.defaultRules = adaptor != null && adaptor.getClass() == DefaultAdaptor.class;
+        this.primitivesPass = adaptor == null || defaultRules;
+    }
+
+    public UncheckedAdaptor getAdaptor() {
+        return adaptor;
+    }
+
+    /**
+     * Bind every value of a BoundString, starting with the first parameter.
+     *
+     * @param ps statement prepared from bs.getString()
+     * @param bs source of values
+     * @throws SQLException if a value cannot be set
+     */
+    public void bind(PreparedStatement ps, BoundString bs) throws SQLException {
+        bind(ps, bs.getBindings());
+    }
+
+    /**
+     * Bind a list of values, starting with the first parameter.
+     *
+     * @param ps       statement to bind
+     * @param bindings values in parameter order
+     * @throws SQLException if a value cannot be set
+     */
+    public void bind(PreparedStatement ps, List<UncheckedBinding> bindings) throws SQLException {
+        int size = bindings.size();
+        BindingList lanes = bindings instanceof BindingList && primitivesPass
+                ? (BindingList) bindings : null;
+        for (int i = 0; i < size; i++) {
+            if (lanes != null) {
+                byte tag = lanes.tagOf(i);
+                if (tag == BindingList.INT) {
+                    ps.setInt(i + 1, lanes.getInt(i));
+                    continue;
+                } else if (tag == BindingList.LONG) {
+                    ps.setLong(i + 1, lanes.getLong(i));
+                    continue;
+                } else if (tag == BindingList.DOUBLE) {
+                    ps.setDouble(i + 1, lanes.getDouble(i));
+                    continue;
+                }
+            }
+            UncheckedBinding binding = bindings.get(i);
+            bind(ps, i + 1, binding.getType(), binding.getObj());
+        }
+    }
+
+    /**
+     * Bind one value.
+     *
+     * @param ps    statement to bind
+     * @param index one-based parameter index
+     * @param type  declared class of the value
+     * @param value value to set, or null
+     * @throws SQLException if the value cannot be set
+     */
+    public void bind(PreparedStatement ps, int index, Class<?> type, Object value)
+            throws SQLException {
+        if (adaptor != null && !defaultRules) {
+            UncheckedBinding adapted = adaptor.outbound(new UncheckedBinding(type, value));
+            type = adapted.getType();
+            value = adapted.getObj();
+        }
+        if (value == null) {
+            ps.setNull(index, setterFor(type).sqlType);
+            return;
+        }
+        if (defaultRules) {
+            Object converted = DefaultAdaptor.outboundRule(type).convert(value);
+            if (converted != value) {
+                type = converted.getClass();
+                value = converted;
+            }
+        }
+        Setter setter = setterFor(type);
+        if (setter == OBJECT || !ReflectionTool.wrapperFor(type).isInstance(value)) {
+            // The declared type is too general, or was not the value's own, so use the value's.
+            setter = setterFor(value.getClass());
+        }
+        setter.set(ps, index, value);
+    }
+
+    /**
+     * Return the SQL type used to bind a null of a given class.
+     *
+     * @param type declared class of a value
+     * @return a java.sql.Types constant, or Types.NULL if the class is not known
+     */
+    public static int sqlType(Class<?> type) {
+        return setterFor(type).sqlType;
+    }
+
+    private static void register(Class<?> type, Setter setter) {
+        setters.put(type, setter);
+    }
+
+    /**
+     * Resolve the setter of a class, caching the result.
+     */
+    private static Setter setterFor(Class<?> type) {
+        Setter setter = setters.get(type);
+        if (setter == null) {
+            setter = OBJECT;
+            for (Class<?> c = type.getSuperclass(); c != null; c = c.getSuperclass()) {
+                Setter inherited = setters.get(c);
+                if (inherited != null) {
+                    setter = inherited;
+                    break;
+                }
+            }
+            setters.put(type, setter);
+        }
+        return setter;
+    }
+
+    /**
+     * Sets a non-null value of one class, and knows the SQL type of its nulls.
+     */
+    private abstract static class Setter {
+
+        private final int sqlType;
+
+        Setter(int sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        abstract void set(PreparedStatement ps, int index, Object value) throws SQLException;
+    }
+
+}
@@ -0,0 +1,284 @@
+package org.pojava.persistence;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.exception.ReflectionException;
+import org.pojava.lang.BoundString;
+import org.pojava.lang.PropertyLayout;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.transformation.DefaultAdaptor;
+import org.pojava.transformation.UncheckedAdaptor;
+import org.pojava.util.ReflectionTool;
+import org.pojava.util.StringTool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SqlGenerator produces INSERT, UPDATE and SELECT statements for a bean class as
+ * BoundStrings.
+ * <p/>
+ * The SQL text and the getters feeding its placeholders are planned once for each statement
+ * kind and property subset, so generating a statement for a bean only reads and binds values.
+ * Columns are named from properties by StringTool.underscoreFromCamel.
+ *
+ * @author John Pile
+ */
+public class SqlGenerator<T> {
+
+    private final Class<T> type;
+    private final String table;
+    private final String[] keys;
+    private final UncheckedAdaptor adaptor;
+    private final Map<PlanKey, Plan> plans = new ConcurrentHashMap<PlanKey, Plan>();
+
+    /**
+     * Construct a generator whose bindings pass through a DefaultAdaptor.
+     *
+     * @param type          class of bean
+     * @param table         name of table
+     * @param keyProperties properties identifying a row, used by UPDATE and SELECT
+     * @throws IllegalArgumentException if no key property is given
+     */
+    public SqlGenerator(Class<T> type, String table, String... keyProperties) {
+        this(type, table, new DefaultAdaptor(), keyProperties);
+    }
+
+    /**
+     * Construct a generator whose bindings pass through the given adaptor.
+     *
+     * @param type          class of bean
+     * @param table         name of table
+     * @param adaptor       outbound conversion applied to each value, null or not
+     * @param keyProperties properties identifying a row, used by UPDATE and SELECT
+     * @throws IllegalArgumentException if no key property is given
+     */
+    public SqlGenerator(Class<T> type, String table, UncheckedAdaptor adaptor,
+                        String... keyProperties) {
+        if (keyProperties == null || keyProperties.length == 0) {
+            throw new IllegalArgumentException("At least one key property is required.");
+        }
+        this.type = type;
+        this.table = table;
+        this.adaptor = adaptor;
+        this.keys = keyProperties.clone();
+    }
+
+    /**
+     * Insert every read/write property of a bean.
+     */
+    public BoundString insert(T bean) {
+        return generate(StatementKind.INSERT, bean, null);
+    }
+
+    /**
+     * Insert the named properties of a bean.
+     */
+    public BoundString insert(T bean, String... properties) {
+        return generate(StatementKind.INSERT, bean, properties);
+    }
+
+    /**
+     * Update every read/write non-key property of a bean, matching on the key properties.
+     */
+    public BoundString update(T bean) {
+        return generate(StatementKind.UPDATE, bean, null);
+    }
+
+    /**
+     * Update the named properties of a bean, matching on the key properties.
+     */
+    public BoundString update(T bean, String... properties) {
+        return generate(StatementKind.UPDATE, bean, properties);
+    }
+
+    /**
+     * Select every read/write property, matching on the key properties of a bean.
+     */
+    public BoundString select(T bean) {
+        return generate(StatementKind.SELECT, bean, null);
+    }
+
+    /**
+     * Select the named properties, matching on the key properties of a bean.
+     */
+    public BoundString select(T bean, String... properties) {
+        return generate(StatementKind.SELECT, bean, properties);
+    }
+
+    /**
+     * Generate a statement, binding its values from a bean. Every value, null or not, passes
+     * through the adaptor, so a null is bound with the type its column expects.
+     *
+     * @param kind       form of statement
+     * @param bean       source of bound values
+     * @param properties properties to insert, update or select, or null for the default set
+     * @return a new BoundString holding the planned SQL and the bean's values
+     * @throws IllegalArgumentException if there are no properties to insert, update or select
+     */
+    public BoundString generate(StatementKind kind, T bean, String[] properties) {
+        Plan plan = plan(kind, properties);
+        BoundString bs = new BoundString(plan.sql);
+        Method[] getters = plan.getters;
+        Class<?>[] types = plan.types;
+        int i = 0;
+        try {
+            for (i = 0; i < getters.length; i++) {
+                Object value = getters[i].invoke(bean, (Object[]) null);
+                bs.addBinding(adaptor.outbound(new UncheckedBinding(types[i], value)));
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getters[i].getName()
+                    + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getters[i].getName()
+                    + ".", ex);
+        }
+        return bs;
+    }
+
+    /**
+     * Return the SQL text planned for a statement kind and property subset.
+     *
+     * @param kind       form of statement
+     * @param properties properties to insert, update or select, or null for the default set
+     * @return SQL text with one placeholder per bound value
+     * @throws IllegalArgumentException if there are no properties to insert, update or select
+     */
+    public String sql(StatementKind kind, String[] properties) {
+        return plan(kind, properties).sql;
+    }
+
+    private Plan plan(StatementKind kind, String[] properties) {
+        Plan plan = plans.get(new PlanKey(kind, properties));
+        if (plan == null) {
+            // Cache under a copy, so a caller reusing its array cannot corrupt the key.
+            String[] owned = properties == null ? null : properties.clone();
+            plan = new Plan(kind, owned == null ? defaultProperties(kind) : owned);
+            plans.put(new PlanKey(kind, owned), plan);
+        }
+        return plan;
+    }
+
+    private String[] defaultProperties(StatementKind kind) {
+        PropertyLayout layout = ReflectionTool.propertyLayout(type);
+        List<String> list = new ArrayList<String>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            String name = layout.getName(i);
+            if (kind != StatementKind.UPDATE || !Arrays.asList(keys).contains(name)) {
+                list.add(name);
+            }
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Identifies a plan by statement kind and property subset.
+     */
+    private static class PlanKey {
+
+        private final StatementKind kind;
+        private final String[] properties;
+
+        PlanKey(StatementKind kind, String[] properties) {
+            this.kind = kind;
+            this.properties = properties;
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.hashCode() * 31 + Arrays.hashCode(properties);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey key = (PlanKey) other;
+            return kind == key.kind && Arrays.equals(properties, key.properties);
+        }
+    }
+
+    /**
+     * The SQL text of a statement along with the getters and types of its bound values, in
+     * placeholder order.
+     */
+    private class Plan {
+
+        private final String sql;
+        private final Method[] getters;
+        private final Class<?>[] types;
+
+        Plan(StatementKind kind, String[] properties) {
+            if (properties.length == 0) {
+                throw new IllegalArgumentException("At least one property is required for "
+                        + kind + ".");
+            }
+            String[] bound;
+            StringBuilder sb = new StringBuilder();
+            if (kind == StatementKind.INSERT) {
+                sb.append("INSERT INTO ").append(table).append(" (");
+                appendColumns(sb, properties, ", ", "");
+                sb.append(") VALUES (");
+                for (int i = 0; i < properties.length; i++) {
+                    sb.append(i == 0 ? "?" : ", ?");
+                }
+                sb.append(')');
+                bound = properties;
+            } else if (kind == StatementKind.UPDATE) {
+                sb.append("UPDATE ").append(table).append(" SET ");
+                appendColumns(sb, properties, ", ", "=?");
+                sb.append(" WHERE ");
+                appendColumns(sb, keys, " AND ", "=?");
+                bound = new String[properties.length + keys.length];
+                System.arraycopy(properties, 0, bound, 0, properties.length);
+                System.arraycopy(keys, 0, bound, properties.length, keys.length);
+            } else {
+                sb.append("SELECT ");
+                appendColumns(sb, properties, ", ", "");
+                sb.append(" FROM ").append(table).append(" WHERE ");
+                appendColumns(sb, keys, " AND ", "=?");
+                bound = keys;
+            }
+            this.sql = sb.toString();
+            PropertyLayout layout = new PropertyLayout(ReflectionTool.accessors(type), bound);
+            this.getters = new Method[bound.length];
+            this.types = new Class<?>[bound.length];
+            for (int i = 0; i < bound.length; i++) {
+                getters[i] = layout.getGetter(i);
+                types[i] = layout.getPropertyType(i);
+            }
+        }
+
+        private void appendColumns(StringBuilder sb, String[] properties, String separator,
+                                   String suffix) {
+            for (int i = 0; i < properties.length; i++) {
+                if (i > 0) {
+                    sb.append(separator);
+                }
+                sb.append(StringTool.underscoreFromCamel(properties[i])).append(suffix);
+            }
+        }
+    }
+
+}
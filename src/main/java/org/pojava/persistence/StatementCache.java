@@ -0,0 +1,234 @@
+package org.pojava.persistence;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.BoundString;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A StatementCache holds the PreparedStatements of a single Connection, keyed by the SQL text
+ * that prepared them, and evicts the least recently used statement when full.
+ * <p/>
+ * A BoundString is looked up by its incrementally maintained string hash and compared in
+ * place, so a cache hit never copies its SQL text. Statements returned by the cache belong to
+ * the cache and must not be closed by the caller. A statement is valid only until the next call
+ * to prepare() or clear(): a miss may evict the least recently used statement and close it, even
+ * one the caller still holds. Finish with each statement, and its ResultSets, before preparing
+ * the next. Every parameter should be bound before each execution, as parameters from a prior
+ * use are not cleared.
+ * <p/>
+ * Like the Connection it serves, a StatementCache is not thread-safe.
+ *
+ * @author John Pile
+ */
+public class StatementCache {
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.persistence.StatementCache");
+
+    private final Connection connection;
+    private final int maxSize;
+    private final Map<Key, PreparedStatement> statements;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Construct a cache over a connection.
+     *
+     * @param connection connection preparing the statements
+     * @param maxSize    maximum number of statements held open
+     */
+    public StatementCache(Connection connection, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive.");
+        }
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    evictions++;
+                    close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached statement for a BoundString's SQL, preparing it on a miss.
+     * Preparing on a miss may close a statement returned earlier.
+     *
+     * @param bs BoundString whose SQL is to be prepared
+     * @return an open PreparedStatement owned by the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(BoundString bs) throws SQLException {
+        PreparedStatement ps = statements.get(new BoundKey(bs));
+        if (ps != null) {
+            hits++;
+            return ps;
+        }
+        return prepareMissing(bs.getString());
+    }
+
+    /**
+     * Return the cached statement for SQL text, preparing it on a miss.
+     * Preparing on a miss may close a statement returned earlier.
+     *
+     * @param sql SQL text to prepare
+     * @return an open PreparedStatement owned by the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(new SqlKey(sql));
+        if (ps != null) {
+            hits++;
+            return ps;
+        }
+        return prepareMissing(sql);
+    }
+
+    private PreparedStatement prepareMissing(String sql) throws SQLException {
+        misses++;
+        PreparedStatement ps = connection.prepareStatement(sql);
+        statements.put(new SqlKey(sql), ps);
+        return ps;
+    }
+
+    /**
+     * Close and discard every cached statement. Counters are retained.
+     */
+    public void clear() {
+        List<PreparedStatement> open = new ArrayList<PreparedStatement>(statements.values());
+        statements.clear();
+        for (PreparedStatement ps : open) {
+            close(ps);
+        }
+    }
+
+    private static void close(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Number of statements currently held open.
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Keys compare by SQL text, whether held as a String or within a BoundString.
+     */
+    private abstract static class Key {
+
+        abstract int sqlHash();
+
+        abstract boolean matches(String sql);
+
+        @Override
+        public int hashCode() {
+            return sqlHash();
+        }
+    }
+
+    private static class SqlKey extends Key {
+
+        private final String sql;
+
+        SqlKey(String sql) {
+            this.sql = sql;
+        }
+
+        int sqlHash() {
+            return sql.hashCode();
+        }
+
+        boolean matches(String other) {
+            return sql.equals(other);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).matches(sql);
+        }
+    }
+
+    /**
+     * A transient probe over a BoundString, used only for lookups.
+     */
+    private static class BoundKey extends Key {
+
+        private final BoundString bs;
+
+        BoundKey(BoundString bs) {
+            this.bs = bs;
+        }
+
+        int sqlHash() {
+            return bs.getStringHash();
+        }
+
+        boolean matches(String sql) {
+            return bs.contentEquals(sql);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SqlKey && bs.contentEquals(((SqlKey) other).sql);
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.Binding;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.util.ReflectionTool;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An AdaptorRegistry holds BindingAdaptors and resolves, for any pair of classes, an
+ * UncheckedAdaptor whose outbound method converts the first class to the second and whose
+ * inbound method converts back.
+ * <p/>
+ * An adaptor may be used in either direction, and one registered for a superclass or interface
+ * of the source also applies to the source. When no single adaptor connects a pair, two are
+ * composed through an intermediate class. Exact matches are preferred to inherited ones,
+ * forward use to reverse, and single adaptors to chains, with ties going to the adaptor
+ * registered first. Resolutions are cached per pair, so adapting a column of values costs one
+ * lookup per value and no search.
+ *
+ * @author John Pile
+ */
+public class AdaptorRegistry {
+
+    private static final UncheckedAdaptor MISSING = new Chain(Object.class, Object.class);
+
+    private final List<BindingAdaptor<?, ?>> adaptors = new CopyOnWriteArrayList<BindingAdaptor<?, ?>>();
+    private final Map<Class<?>, Map<Class<?>, UncheckedAdaptor>> resolved = new ConcurrentHashMap<Class<?>, Map<Class<?>, UncheckedAdaptor>>();
+
+    /**
+     * Register an adaptor.
+     *
+     * @param adaptor adaptor to register
+     */
+    public void register(BindingAdaptor<?, ?> adaptor) {
+        adaptors.add(adaptor);
+        resolved.clear();
+    }
+
+    /**
+     * Resolve an adaptor converting one class to another.
+     *
+     * @param from class of source values
+     * @param to   class of target values, which may be primitive
+     * @return adaptor whose outbound method converts from the source class, or null if none
+     */
+    public UncheckedAdaptor resolve(Class<?> from, Class<?> to) {
+        Map<Class<?>, UncheckedAdaptor> targets = resolved.get(from);
+        if (targets == null) {
+            targets = new ConcurrentHashMap<Class<?>, UncheckedAdaptor>();
+            resolved.put(from, targets);
+        }
+        UncheckedAdaptor adaptor = targets.get(to);
+        if (adaptor == null) {
+            adaptor = search(from, ReflectionTool.wrapperFor(to));
+            targets.put(to, adaptor);
+        }
+        return adaptor == MISSING ? null : adaptor;
+    }
+
+    /**
+     * Convert a binding to another class.
+     *
+     * @param binding binding to convert
+     * @param to      class of the resulting binding
+     * @return converted binding
+     * @throws IllegalArgumentException if no adaptor connects the classes
+     */
+    public UncheckedBinding adapt(UncheckedBinding binding, Class<?> to) {
+        UncheckedAdaptor adaptor = resolve(binding.getType(), to);
+        if (adaptor == null) {
+            throw new IllegalArgumentException("No adaptor from " + binding.getType().getName()
+                    + " to " + to.getName() + ".");
+        }
+        return adaptor.outbound(binding);
+    }
+
+    private UncheckedAdaptor search(Class<?> from, Class<?> to) {
+        if (to.isAssignableFrom(from)) {
+            return new Chain(from, to);
+        }
+        Step step = single(from, to);
+        if (step != null) {
+            return new Chain(from, to, step);
+        }
+        for (Class<?> type : ReflectionTool.hierarchy(from)) {
+            for (BindingAdaptor<?, ?> adaptor : adaptors) {
+                for (int pass = 0; pass < 2; pass++) {
+                    boolean forward = pass == 0;
+                    Class<?> source = forward ? adaptor.inboundType() : adaptor.outboundType();
+                    if (source != type) {
+                        continue;
+                    }
+                    Class<?> mid = forward ? adaptor.outboundType() : adaptor.inboundType();
+                    Step second = single(mid, to);
+                    if (second != null) {
+                        return new Chain(from, to, new Step(adaptor, forward), second);
+                    }
+                }
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Find a single adaptor, used in either direction, connecting two classes.
+     */
+    private Step single(Class<?> from, Class<?> to) {
+        for (Class<?> type : ReflectionTool.hierarchy(from)) {
+            for (BindingAdaptor<?, ?> adaptor : adaptors) {
+                if (adaptor.inboundType() == type
+                        && to.isAssignableFrom(adaptor.outboundType())) {
+                    return new Step(adaptor, true);
+                }
+            }
+            for (BindingAdaptor<?, ?> adaptor : adaptors) {
+                if (adaptor.outboundType() == type
+                        && to.isAssignableFrom(adaptor.inboundType())) {
+                    return new Step(adaptor, false);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One adaptor, used forward (outbound) or in reverse (inbound).
+     */
+    private static class Step {
+
+        private final BindingAdaptor<?, ?> adaptor;
+        private final boolean forward;
+
+        Step(BindingAdaptor<?, ?> adaptor, boolean forward) {
+            this.adaptor = adaptor;
+            this.forward = forward;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        UncheckedBinding apply(UncheckedBinding binding, boolean outbound) {
+            BindingAdaptor raw = adaptor;
+            if (outbound == forward) {
+                return raw.outbound(new Binding(adaptor.inboundType(), binding.getObj()));
+            }
+            return raw.inbound(new Binding(adaptor.outboundType(), binding.getObj()));
+        }
+    }
+
+    /**
+     * A resolved sequence of steps, applied in order outbound and in reverse order inbound.
+     */
+    private static class Chain implements UncheckedAdaptor {
+
+        private final Class<?> from;
+        private final Class<?> to;
+        private final Step[] steps;
+
+        Chain(Class<?> from, Class<?> to, Step... steps) {
+            this.from = from;
+            this.to = to;
+            this.steps = steps;
+        }
+
+        public Class<?> inboundType() {
+            return from;
+        }
+
+        public Class<?> outboundType() {
+            return to;
+        }
+
+        public UncheckedBinding outbound(UncheckedBinding binding) {
+            for (Step step : steps) {
+                binding = step.apply(binding, true);
+            }
+            return binding;
+        }
+
+        public UncheckedBinding inbound(UncheckedBinding binding) {
+            for (int i = steps.length - 1; i >= 0; i--) {
+                binding = steps[i].apply(binding, false);
+            }
+            return binding;
+        }
+    }
+
+}
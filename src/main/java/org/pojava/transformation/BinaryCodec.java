@@ -0,0 +1,825 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+import org.pojava.exception.ReflectionException;
+import org.pojava.lang.PropertyLayout;
+import org.pojava.util.HashingAlgorithm;
+import org.pojava.util.HashingTool;
+import org.pojava.util.ReflectionTool;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A BinaryCodec writes beans to, and reads them from, a compact binary form in a ByteBuffer.
+ * <p/>
+ * The schema is derived from the bean's PropertyLayout. Integral values are written as
+ * zig-zag varints, floating point values in fixed width, strings as length-prefixed UTF-8, and
+ * dates as epoch milliseconds, or as epoch seconds and nanoseconds for a DateTime. Nested
+ * beans, arrays and generically typed collections are written recursively. Nullable values
+ * carry a leading marker; primitives do not.
+ * <p/>
+ * Each encoded bean starts with an 8-byte schema fingerprint, so a reader can reject, or
+ * choose a codec for, data written under a different schema. The fingerprint covers the
+ * property layout of nested beans as well as that of the bean itself. Buffers are supplied by
+ * the caller and may be reused. If a buffer lacks room, a BufferOverflowException is thrown and
+ * the caller may retry with a larger one.
+ *
+ * @author John Pile
+ */
+public class BinaryCodec<T> {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Map<Class<?>, BinaryCodec<?>> codecs = new ConcurrentHashMap<Class<?>, BinaryCodec<?>>();
+
+    private final Class<T> type;
+    private final Method[] getters;
+    private final Method[] setters;
+    private final ValueCodec[] fields;
+    private final long fingerprint;
+
+    /**
+     * Construct a codec over every read/write property of a class.
+     *
+     * @param type class of bean, which must have a public no-argument constructor
+     */
+    public BinaryCodec(Class<T> type) {
+        this.type = type;
+        PropertyLayout layout = ReflectionTool.propertyLayout(type);
+        int size = layout.size();
+        this.getters = new Method[size];
+        this.setters = new Method[size];
+        this.fields = new ValueCodec[size];
+        for (int i = 0; i < size; i++) {
+            getters[i] = layout.getGetter(i);
+            setters[i] = layout.getSetter(i);
+            fields[i] = valueCodec(layout.getPropertyType(i), getters[i].getGenericReturnType());
+        }
+        String schema = describeLayout(type, fields, new HashSet<Class<?>>());
+        byte[] digest = HashingTool.hash(schema.getBytes(UTF8), HashingAlgorithm.MD5);
+        this.fingerprint = ByteBuffer.wrap(digest).getLong();
+    }
+
+    /**
+     * Return a shared codec for a class.
+     *
+     * @param type class of bean
+     * @return codec cached for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BinaryCodec<T> forClass(Class<T> type) {
+        BinaryCodec<T> codec = (BinaryCodec<T>) codecs.get(type);
+        if (codec == null) {
+            codec = new BinaryCodec<T>(type);
+            codecs.put(type, codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Fingerprint of the schema, written at the head of every encoded bean.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Read the fingerprint at the current position of a buffer without consuming it.
+     *
+     * @param in buffer positioned at the start of an encoded bean
+     * @return schema fingerprint of the encoded bean
+     */
+    public static long readFingerprint(ByteBuffer in) {
+        return in.getLong(in.position());
+    }
+
+    /**
+     * Write a bean, preceded by the schema fingerprint.
+     *
+     * @param bean bean to encode
+     * @param out  buffer receiving the encoded bean at its current position
+     */
+    public void encode(T bean, ByteBuffer out) {
+        out.putLong(fingerprint);
+        writeFields(bean, out);
+    }
+
+    /**
+     * Read a new bean.
+     *
+     * @param in buffer positioned at the start of an encoded bean
+     * @return decoded bean
+     */
+    public T decode(ByteBuffer in) {
+        return decode(in, newInstance());
+    }
+
+    /**
+     * Read into an existing bean.
+     *
+     * @param in   buffer positioned at the start of an encoded bean
+     * @param bean bean to populate
+     * @return the populated bean
+     */
+    public T decode(ByteBuffer in, T bean) {
+        long found = in.getLong();
+        if (found != fingerprint) {
+            throw new IllegalArgumentException("Schema fingerprint " + Long.toHexString(found)
+                    + " does not match " + Long.toHexString(fingerprint) + " of "
+                    + type.getName() + ".");
+        }
+        readFields(in, bean);
+        return bean;
+    }
+
+    private void writeFields(Object bean, ByteBuffer out) {
+        int i = 0;
+        try {
+            for (i = 0; i < fields.length; i++) {
+                fields[i].write(out, getters[i].invoke(bean, (Object[]) null));
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getters[i].getName()
+                    + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getters[i].getName()
+                    + ".", ex);
+        }
+    }
+
+    private void readFields(ByteBuffer in, Object bean) {
+        Object[] args = new Object[1];
+        int i = 0;
+        try {
+            for (i = 0; i < fields.length; i++) {
+                args[0] = fields[i].read(in);
+                setters[i].invoke(bean, args);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke setter " + setters[i].getName()
+                    + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke setter " + setters[i].getName()
+                    + ".", ex);
+        }
+    }
+
+    private T newInstance() {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        }
+    }
+
+    /**
+     * Describe a bean's properties and their codecs, nested beans included.
+     *
+     * @param cls       class of bean
+     * @param fields    codec of each property, in layout order
+     * @param enclosing beans already being described, which are named rather than expanded
+     * @return description of the schema
+     */
+    private static String describeLayout(Class<?> cls, ValueCodec[] fields,
+                                         Set<Class<?>> enclosing) {
+        PropertyLayout layout = ReflectionTool.propertyLayout(cls);
+        StringBuilder schema = new StringBuilder(cls.getName());
+        enclosing.add(cls);
+        for (int i = 0; i < fields.length; i++) {
+            schema.append(';').append(layout.getName(i)).append(':').append(
+                    fields[i].describe(enclosing));
+        }
+        enclosing.remove(cls);
+        return schema.toString();
+    }
+
+    /**
+     * Choose the codec for a value of a given type.
+     */
+    private static ValueCodec valueCodec(Class<?> cls, Type generic) {
+        if (cls.isPrimitive()) {
+            return new PrimitiveCodec(cls);
+        }
+        if (cls == Boolean.class || cls == Byte.class || cls == Short.class
+                || cls == Character.class || cls == Integer.class || cls == Long.class
+                || cls == Float.class || cls == Double.class) {
+            return new NullableCodec(new PrimitiveCodec(cls));
+        }
+        if (cls == String.class) {
+            return new StringCodec();
+        }
+        if (cls == byte[].class) {
+            return new BytesCodec();
+        }
+        if (cls.isEnum()) {
+            return new EnumCodec(cls);
+        }
+        if (cls == DateTime.class || Date.class.isAssignableFrom(cls)) {
+            return new NullableCodec(new DateCodec(cls));
+        }
+        if (cls.isArray()) {
+            Type component = generic instanceof GenericArrayType ? ((GenericArrayType) generic)
+                    .getGenericComponentType() : cls.getComponentType();
+            return new ArrayCodec(cls.getComponentType(), valueCodec(cls.getComponentType(),
+                    component));
+        }
+        if (Collection.class.isAssignableFrom(cls)) {
+            if (generic instanceof ParameterizedType) {
+                Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+                Class<?> elementClass = rawClass(element);
+                if (elementClass != null) {
+                    return new CollectionCodec(cls, valueCodec(elementClass, element));
+                }
+            }
+            throw new IllegalArgumentException("Collection element type of " + generic
+                    + " cannot be determined.");
+        }
+        if (cls.isInterface() || cls == Object.class || ReflectionTool.isMap(cls)) {
+            throw new IllegalArgumentException("Unsupported property type " + cls.getName()
+                    + ".");
+        }
+        return new NullableCodec(new BeanCodec(cls));
+    }
+
+    /**
+     * The class underlying a generic type, or null for a type variable or wildcard.
+     */
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?>) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> component = rawClass(((GenericArrayType) type).getGenericComponentType());
+            return component == null ? null : Array.newInstance(component, 0).getClass();
+        }
+        return null;
+    }
+
+    /**
+     * Write a zig-zag encoded varint.
+     */
+    private static void putVarLong(ByteBuffer out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7fL) != 0) {
+            out.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /**
+     * Read a zig-zag encoded varint.
+     */
+    private static long getVarLong(ByteBuffer in) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Writes and reads one kind of value.
+     */
+    private abstract static class ValueCodec {
+
+        abstract void write(ByteBuffer out, Object value);
+
+        abstract Object read(ByteBuffer in);
+
+        /**
+         * Describe the encoding, so that the fingerprint changes when it does.
+         *
+         * @param enclosing beans already being described, which are not expanded again
+         */
+        abstract String describe(Set<Class<?>> enclosing);
+    }
+
+    /**
+     * Guards a codec with a one-byte null marker.
+     */
+    private static class NullableCodec extends ValueCodec {
+
+        private final ValueCodec codec;
+
+        NullableCodec(ValueCodec codec) {
+            this.codec = codec;
+        }
+
+        void write(ByteBuffer out, Object value) {
+            if (value == null) {
+                out.put((byte) 0);
+            } else {
+                out.put((byte) 1);
+                codec.write(out, value);
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            return in.get() == 0 ? null : codec.read(in);
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return "?" + codec.describe(enclosing);
+        }
+    }
+
+    private static class PrimitiveCodec extends ValueCodec {
+
+        private static final int BOOLEAN = 0, BYTE = 1, SHORT = 2, CHAR = 3, INT = 4, LONG = 5,
+                FLOAT = 6, DOUBLE = 7;
+        private final int kind;
+        private final String description;
+
+        PrimitiveCodec(Class<?> cls) {
+            if (cls == boolean.class || cls == Boolean.class) {
+                kind = BOOLEAN;
+            } else if (cls == byte.class || cls == Byte.class) {
+                kind = BYTE;
+            } else if (cls == short.class || cls == Short.class) {
+                kind = SHORT;
+            } else if (cls == char.class || cls == Character.class) {
+                kind = CHAR;
+            } else if (cls == int.class || cls == Integer.class) {
+                kind = INT;
+            } else if (cls == long.class || cls == Long.class) {
+                kind = LONG;
+            } else if (cls == float.class || cls == Float.class) {
+                kind = FLOAT;
+            } else if (cls == double.class || cls == Double.class) {
+                kind = DOUBLE;
+            } else {
+                throw new IllegalArgumentException("Unsupported property type " + cls.getName()
+                        + ".");
+            }
+            description = cls.getName();
+        }
+
+        void write(ByteBuffer out, Object value) {
+            switch (kind) {
+                case BOOLEAN:
+                    out.put(((Boolean) value) ? (byte) 1 : (byte) 0);
+                    break;
+                case BYTE:
+                    out.put((Byte) value);
+                    break;
+                case SHORT:
+                    out.putShort((Short) value);
+                    break;
+                case CHAR:
+                    out.putChar((Character) value);
+                    break;
+                case INT:
+                    putVarLong(out, (Integer) value);
+                    break;
+                case LONG:
+                    putVarLong(out, (Long) value);
+                    break;
+                case FLOAT:
+                    out.putFloat((Float) value);
+                    break;
+                default:
+                    out.putDouble((Double) value);
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            switch (kind) {
+                case BOOLEAN:
+                    return in.get() != 0;
+                case BYTE:
+                    return in.get();
+                case SHORT:
+                    return in.getShort();
+                case CHAR:
+                    return in.getChar();
+                case INT:
+                    return (int) getVarLong(in);
+                case LONG:
+                    return getVarLong(in);
+                case FLOAT:
+                    return in.getFloat();
+                default:
+                    return in.getDouble();
+            }
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return description;
+        }
+    }
+
+    /**
+     * Writes the byte length plus one (zero for null), followed by UTF-8.
+     */
+    private static class StringCodec extends ValueCodec {
+
+        void write(ByteBuffer out, Object value) {
+            if (value == null) {
+                out.put((byte) 0);
+                return;
+            }
+            String str = (String) value;
+            int len = str.length();
+            int bytes = 0;
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else {
+                    bytes += 3;
+                }
+            }
+            putVarLong(out, bytes + 1);
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                if (c < 0x80) {
+                    out.put((byte) c);
+                } else if (c < 0x800) {
+                    out.put((byte) (0xc0 | (c >> 6)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, str.charAt(++i));
+                    out.put((byte) (0xf0 | (cp >> 18)));
+                    out.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                    out.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (cp & 0x3f)));
+                } else {
+                    out.put((byte) (0xe0 | (c >> 12)));
+                    out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                }
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            int len = (int) getVarLong(in) - 1;
+            if (len < 0) {
+                return null;
+            }
+            String str;
+            if (in.hasArray()) {
+                str = new String(in.array(), in.arrayOffset() + in.position(), len, UTF8);
+                in.position(in.position() + len);
+            } else {
+                byte[] bytes = new byte[len];
+                in.get(bytes);
+                str = new String(bytes, UTF8);
+            }
+            return str;
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return "java.lang.String";
+        }
+    }
+
+    private static class BytesCodec extends ValueCodec {
+
+        void write(ByteBuffer out, Object value) {
+            if (value == null) {
+                out.put((byte) 0);
+            } else {
+                byte[] bytes = (byte[]) value;
+                putVarLong(out, bytes.length + 1);
+                out.put(bytes);
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            int len = (int) getVarLong(in) - 1;
+            if (len < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[len];
+            in.get(bytes);
+            return bytes;
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return "byte[]";
+        }
+    }
+
+    /**
+     * Writes the ordinal plus one (zero for null).
+     */
+    private static class EnumCodec extends ValueCodec {
+
+        private final Object[] constants;
+        private final String description;
+
+        EnumCodec(Class<?> cls) {
+            this.constants = cls.getEnumConstants();
+            StringBuilder sb = new StringBuilder(cls.getName());
+            for (Object constant : constants) {
+                sb.append(',').append(constant);
+            }
+            this.description = sb.toString();
+        }
+
+        void write(ByteBuffer out, Object value) {
+            putVarLong(out, value == null ? 0 : ((Enum<?>) value).ordinal() + 1);
+        }
+
+        Object read(ByteBuffer in) {
+            int ordinal = (int) getVarLong(in);
+            return ordinal == 0 ? null : constants[ordinal - 1];
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return description;
+        }
+    }
+
+    /**
+     * Writes epoch milliseconds, plus nanoseconds for a Timestamp. A DateTime is written as
+     * epoch seconds and nanoseconds, so no precision is lost.
+     */
+    private static class DateCodec extends ValueCodec {
+
+        private static final int DATETIME = 0, TIMESTAMP = 1, SQLDATE = 2, TIME = 3, DATE = 4;
+        private final int kind;
+
+        DateCodec(Class<?> cls) {
+            if (cls == DateTime.class) {
+                kind = DATETIME;
+            } else if (cls == Timestamp.class) {
+                kind = TIMESTAMP;
+            } else if (cls == java.sql.Date.class) {
+                kind = SQLDATE;
+            } else if (cls == Time.class) {
+                kind = TIME;
+            } else {
+                kind = DATE;
+            }
+        }
+
+        void write(ByteBuffer out, Object value) {
+            if (kind == DATETIME) {
+                DateTime dt = (DateTime) value;
+                putVarLong(out, dt.getSeconds());
+                putVarLong(out, dt.getNanos());
+            } else {
+                out.putLong(((Date) value).getTime());
+                if (kind == TIMESTAMP) {
+                    putVarLong(out, ((Timestamp) value).getNanos());
+                }
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            if (kind == DATETIME) {
+                long seconds = getVarLong(in);
+                return new DateTime(seconds, (int) getVarLong(in));
+            }
+            long millis = in.getLong();
+            switch (kind) {
+                case TIMESTAMP:
+                    Timestamp ts = new Timestamp(millis);
+                    ts.setNanos((int) getVarLong(in));
+                    return ts;
+                case SQLDATE:
+                    return new java.sql.Date(millis);
+                case TIME:
+                    return new Time(millis);
+                default:
+                    return new Date(millis);
+            }
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return "date" + kind;
+        }
+    }
+
+    /**
+     * Writes the length plus one (zero for null), followed by each element.
+     */
+    private static class ArrayCodec extends ValueCodec {
+
+        private final Class<?> component;
+        private final ValueCodec codec;
+
+        ArrayCodec(Class<?> component, ValueCodec codec) {
+            this.component = component;
+            this.codec = codec;
+        }
+
+        void write(ByteBuffer out, Object value) {
+            if (value == null) {
+                out.put((byte) 0);
+                return;
+            }
+            int len = Array.getLength(value);
+            putVarLong(out, len + 1);
+            if (value instanceof Object[]) {
+                Object[] array = (Object[]) value;
+                for (Object element : array) {
+                    codec.write(out, element);
+                }
+            } else {
+                for (int i = 0; i < len; i++) {
+                    codec.write(out, Array.get(value, i));
+                }
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            int len = (int) getVarLong(in) - 1;
+            if (len < 0) {
+                return null;
+            }
+            Object array = Array.newInstance(component, len);
+            if (array instanceof Object[]) {
+                Object[] objects = (Object[]) array;
+                for (int i = 0; i < len; i++) {
+                    objects[i] = codec.read(in);
+                }
+            } else {
+                for (int i = 0; i < len; i++) {
+                    Array.set(array, i, codec.read(in));
+                }
+            }
+            return array;
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return "[" + codec.describe(enclosing);
+        }
+    }
+
+    /**
+     * Writes the size plus one (zero for null), followed by each element. An interface type is
+     * read back as a TreeSet for a SortedSet, a LinkedHashSet for any other Set, an ArrayDeque
+     * for a Queue, and an ArrayList otherwise.
+     */
+    private static class CollectionCodec extends ValueCodec {
+
+        private static final int OTHER = 0, LIST = 1, SET = 2, SORTED = 3, QUEUE = 4;
+        private final Class<?> cls;
+        private final ValueCodec codec;
+        private final int kind;
+
+        CollectionCodec(Class<?> cls, ValueCodec codec) {
+            this.cls = cls;
+            this.codec = codec;
+            if (!cls.isInterface()) {
+                kind = OTHER;
+            } else if (cls.isAssignableFrom(ArrayList.class)) {
+                kind = LIST;
+            } else if (cls.isAssignableFrom(LinkedHashSet.class)) {
+                kind = SET;
+            } else if (cls.isAssignableFrom(TreeSet.class)) {
+                kind = SORTED;
+            } else if (cls.isAssignableFrom(ArrayDeque.class)) {
+                kind = QUEUE;
+            } else {
+                throw new IllegalArgumentException("Unsupported collection type " + cls.getName()
+                        + ".");
+            }
+        }
+
+        void write(ByteBuffer out, Object value) {
+            if (value == null) {
+                out.put((byte) 0);
+                return;
+            }
+            Collection<?> collection = (Collection<?>) value;
+            putVarLong(out, collection.size() + 1);
+            for (Object element : collection) {
+                codec.write(out, element);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Object read(ByteBuffer in) {
+            int len = (int) getVarLong(in) - 1;
+            if (len < 0) {
+                return null;
+            }
+            Collection<Object> collection;
+            switch (kind) {
+                case LIST:
+                    collection = new ArrayList<Object>(len);
+                    break;
+                case SET:
+                    collection = new LinkedHashSet<Object>(len * 2);
+                    break;
+                case SORTED:
+                    collection = new TreeSet<Object>();
+                    break;
+                case QUEUE:
+                    collection = new ArrayDeque<Object>(Math.max(len, 1));
+                    break;
+                default:
+                    try {
+                        collection = (Collection<Object>) cls.newInstance();
+                    } catch (InstantiationException ex) {
+                        throw new ReflectionException("Failed to instantiate " + cls.getName()
+                                + ".", ex);
+                    } catch (IllegalAccessException ex) {
+                        throw new ReflectionException("Failed to instantiate " + cls.getName()
+                                + ".", ex);
+                    }
+            }
+            for (int i = 0; i < len; i++) {
+                collection.add(codec.read(in));
+            }
+            return collection;
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            return cls.getName() + "<" + codec.describe(enclosing) + ">";
+        }
+    }
+
+    /**
+     * Writes a nested bean without a fingerprint header. The nested codec is resolved on first
+     * use so that self-referencing beans do not recurse during construction. Its description
+     * expands the nested properties, but only names a bean that encloses it.
+     */
+    private static class BeanCodec extends ValueCodec {
+
+        private final Class<?> cls;
+        private BinaryCodec<?> codec;
+
+        BeanCodec(Class<?> cls) {
+            this.cls = cls;
+        }
+
+        private BinaryCodec<?> codec() {
+            if (codec == null) {
+                codec = forClass(cls);
+            }
+            return codec;
+        }
+
+        void write(ByteBuffer out, Object value) {
+            codec().writeFields(value, out);
+        }
+
+        Object read(ByteBuffer in) {
+            BinaryCodec<?> nested = codec();
+            Object bean = nested.newInstance();
+            nested.readFields(in, bean);
+            return bean;
+        }
+
+        String describe(Set<Class<?>> enclosing) {
+            if (enclosing.contains(cls)) {
+                return "^" + cls.getName();
+            }
+            PropertyLayout layout = ReflectionTool.propertyLayout(cls);
+            ValueCodec[] nested = new ValueCodec[layout.size()];
+            for (int i = 0; i < nested.length; i++) {
+                nested[i] = valueCodec(layout.getPropertyType(i), layout.getGetter(i)
+                        .getGenericReturnType());
+            }
+            return "{" + describeLayout(cls, nested, enclosing) + "}";
+        }
+    }
+
+}
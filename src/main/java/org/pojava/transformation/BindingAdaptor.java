@@ -17,6 +17,10 @@ package org.pojava.transformation;
  */
 
 import org.pojava.lang.Binding;
+import org.pojava.util.ConversionService;
+import org.pojava.util.Converter;
+
+import java.lang.reflect.Array;
 
 /**
  * A BindingAdaptor is a two-way data transformer used for translating a single typed value with
@@ -49,4 +53,100 @@ public abstract class BindingAdaptor<I, O> {
      */
     public abstract Binding<O> outbound(Binding<I> obj);
 
+    /**
+     * Translate an inbound value without wrapping it in a Binding. Adaptors with a cheaper
+     * direct translation override this.
+     *
+     * @param value Outbound value, which may be null
+     * @return the value translated to the inbound type
+     */
+    public I toInbound(O value) {
+        return inbound(new Binding<O>(outboundType(), value)).getValue();
+    }
+
+    /**
+     * Translate an outbound value without wrapping it in a Binding. Adaptors with a cheaper
+     * direct translation override this.
+     *
+     * @param value Inbound value, which may be null
+     * @return the value translated to the outbound type
+     */
+    public O toOutbound(I value) {
+        return outbound(new Binding<I>(inboundType(), value)).getValue();
+    }
+
+    /**
+     * Translate an array of outbound values to inbound values. This converts each element
+     * through toInbound(O); adaptors with a tighter loop override it.
+     *
+     * @param values Outbound values, which may include nulls
+     * @param result array to fill, or null to allocate one of the inbound type
+     * @return the filled result array
+     * @throws IllegalArgumentException if result is shorter than values
+     */
+    public I[] toInbound(O[] values, I[] result) {
+        I[] into = result != null ? fits(result, values.length) : newArray(inboundType(),
+                values.length);
+        for (int i = 0; i < values.length; i++) {
+            into[i] = toInbound(values[i]);
+        }
+        return into;
+    }
+
+    /**
+     * Translate an array of inbound values to outbound values. This converts each element
+     * through toOutbound(I); adaptors with a tighter loop override it.
+     *
+     * @param values Inbound values, which may include nulls
+     * @param result array to fill, or null to allocate one of the outbound type
+     * @return the filled result array
+     * @throws IllegalArgumentException if result is shorter than values
+     */
+    public O[] toOutbound(I[] values, O[] result) {
+        O[] into = result != null ? fits(result, values.length) : newArray(outboundType(),
+                values.length);
+        for (int i = 0; i < values.length; i++) {
+            into[i] = toOutbound(values[i]);
+        }
+        return into;
+    }
+
+    /**
+     * Register both directions of this adaptor with a ConversionService. Its outbound
+     * translation converts from the inbound type to the outbound type, and its inbound
+     * translation converts back.
+     *
+     * @param service service receiving a converter for each direction
+     */
+    public void registerWith(ConversionService service) {
+        final Class<I> inType = inboundType();
+        final Class<O> outType = outboundType();
+        service.register(inType, outType, new Converter() {
+            public Object convert(Object value) {
+                return toOutbound(inType.cast(value));
+            }
+        });
+        service.register(outType, inType, new Converter() {
+            public Object convert(Object value) {
+                return toInbound(outType.cast(value));
+            }
+        });
+    }
+
+    /**
+     * Check that a caller's result array can hold a translation of every value.
+     */
+    static <T> T[] fits(T[] result, int length) {
+        if (result.length < length) {
+            throw new IllegalArgumentException("Result array holds " + result.length
+                    + " values but " + length + " are needed.");
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T[] newArray(Class<T> type, int length) {
+        return (T[]) Array.newInstance(type, length);
+    }
+
 }
@@ -17,6 +17,7 @@ package org.pojava.transformation;
  */
 
 import org.pojava.lang.Binding;
+import org.pojava.lang.ImmutableBinding;
 
 /**
  * The BooleanIntegerAdaptor transforms a Boolean true/false value to an Integer 1/0 value.
@@ -25,6 +26,13 @@ import org.pojava.lang.Binding;
  */
 public class BooleanIntegerAdaptor extends BindingAdaptor<Boolean, Integer> {
 
+    private static final Integer ZERO = 0;
+    private static final Integer ONE = 1;
+    private static final Binding<Integer> ZERO_BINDING = new ImmutableBinding<Integer>(
+            Integer.class, ZERO);
+    private static final Binding<Integer> ONE_BINDING = new ImmutableBinding<Integer>(
+            Integer.class, ONE);
+
     public Class<Boolean> inboundType() {
         return Boolean.class;
     }
@@ -33,22 +41,94 @@ public class BooleanIntegerAdaptor extends BindingAdaptor<Boolean, Integer> {
         return Integer.class;
     }
 
+    /**
+     * Returns a shared, immutable binding.
+     */
     public Binding<Boolean> inbound(Binding<Integer> fromBinding) {
-        Binding<Boolean> toBinding = new Binding<Boolean>(Boolean.class, null);
-        if (fromBinding == null || fromBinding.getObj() == null) {
-            return toBinding;
+        if (fromBinding == null) {
+            return ImmutableBinding.nullOf(Boolean.class);
         }
-        toBinding.setObj(fromBinding.getValue() != 0);
-        return toBinding;
+        return ImmutableBinding.valueOf(toInbound(fromBinding.getValue()));
     }
 
+    /**
+     * Returns a shared, immutable binding.
+     */
     public Binding<Integer> outbound(Binding<Boolean> fromBinding) {
-        Binding<Integer> toBinding = new Binding<Integer>(Integer.class, null);
-        if (fromBinding == null || fromBinding.getObj() == null) {
-            return toBinding;
+        if (fromBinding == null) {
+            return ImmutableBinding.nullOf(Integer.class);
+        }
+        Boolean value = fromBinding.getValue();
+        if (value == null) {
+            return ImmutableBinding.nullOf(Integer.class);
+        }
+        return value ? ONE_BINDING : ZERO_BINDING;
+    }
+
+    @Override
+    public Boolean toInbound(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        return value != 0 ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    @Override
+    public Integer toOutbound(Boolean value) {
+        if (value == null) {
+            return null;
+        }
+        return value ? ONE : ZERO;
+    }
+
+    @Override
+    public Boolean[] toInbound(Integer[] values, Boolean[] result) {
+        Boolean[] into = result != null ? fits(result, values.length)
+                : new Boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Integer value = values[i];
+            into[i] = value == null ? null : value != 0 ? Boolean.TRUE : Boolean.FALSE;
+        }
+        return into;
+    }
+
+    @Override
+    public Integer[] toOutbound(Boolean[] values, Integer[] result) {
+        Integer[] into = result != null ? fits(result, values.length)
+                : new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Boolean value = values[i];
+            into[i] = value == null ? null : value ? ONE : ZERO;
+        }
+        return into;
+    }
+
+    /**
+     * Translate a column of integers to booleans, where any non-zero value is true.
+     *
+     * @param values integer values
+     * @return one boolean per value
+     */
+    public boolean[] toInbound(int[] values) {
+        boolean[] into = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            into[i] = values[i] != 0;
+        }
+        return into;
+    }
+
+    /**
+     * Translate a column of booleans to integers of 1 and 0.
+     *
+     * @param values boolean values
+     * @return one integer per value
+     */
+    public int[] toOutbound(boolean[] values) {
+        int[] into = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            into[i] = values[i] ? 1 : 0;
         }
-        toBinding.setObj(fromBinding.getValue().equals(Boolean.TRUE) ? 1 : 0);
-        return toBinding;
+        return into;
     }
 
 }
@@ -17,6 +17,7 @@ package org.pojava.transformation;
  */
 
 import org.pojava.lang.Binding;
+import org.pojava.lang.ImmutableBinding;
 
 /*
  * The BooleanYNAdaptor transforms a Boolean true/false value to a
@@ -24,6 +25,9 @@ import org.pojava.lang.Binding;
  */
 public class BooleanYNAdaptor extends BindingAdaptor<Boolean, String> {
 
+    private static final Binding<String> Y = new ImmutableBinding<String>(String.class, "Y");
+    private static final Binding<String> N = new ImmutableBinding<String>(String.class, "N");
+
     public Class<Boolean> inboundType() {
         return Boolean.class;
     }
@@ -32,31 +36,49 @@ public class BooleanYNAdaptor extends BindingAdaptor<Boolean, String> {
         return String.class;
     }
 
+    /**
+     * Returns a shared, immutable binding.
+     */
     public Binding<Boolean> inbound(Binding<String> fromBinding) {
-        Binding<Boolean> toBinding = new Binding<Boolean>(Boolean.class, null);
-        if (fromBinding == null || fromBinding.getObj() == null) {
-            return toBinding;
+        if (fromBinding == null) {
+            return ImmutableBinding.nullOf(Boolean.class);
         }
-        String fromStr = fromBinding.getObj().toString();
-        if (fromStr.length() == 0) {
-            return toBinding;
+        Object obj = fromBinding.getObj();
+        return ImmutableBinding.valueOf(obj == null ? null : toInbound(obj.toString()));
+    }
+
+    /**
+     * Returns a shared, immutable binding.
+     */
+    public Binding<String> outbound(Binding<Boolean> fromBinding) {
+        if (fromBinding == null) {
+            return ImmutableBinding.nullOf(String.class);
         }
-        char fromChar = fromStr.charAt(0);
-        if (Character.toUpperCase(fromChar) == 'Y') {
-            toBinding.setObj(Boolean.TRUE);
-        } else if (Character.toUpperCase(fromChar) == 'N') {
-            toBinding.setObj(Boolean.FALSE);
+        Boolean value = fromBinding.getValue();
+        if (value == null) {
+            return ImmutableBinding.nullOf(String.class);
         }
-        return toBinding;
+        return value ? Y : N;
     }
 
-    public Binding<String> outbound(Binding<Boolean> fromBinding) {
-        Binding<String> toBinding = new Binding<String>(String.class, null);
-        if (fromBinding == null || fromBinding.getObj() == null) {
-            return toBinding;
+    @Override
+    public Boolean toInbound(String value) {
+        if (value == null || value.length() == 0) {
+            return null;
+        }
+        char c = Character.toUpperCase(value.charAt(0));
+        if (c == 'Y') {
+            return Boolean.TRUE;
+        }
+        return c == 'N' ? Boolean.FALSE : null;
+    }
+
+    @Override
+    public String toOutbound(Boolean value) {
+        if (value == null) {
+            return null;
         }
-        toBinding.setValue(fromBinding.getValue().equals(Boolean.TRUE) ? "Y" : "N");
-        return toBinding;
+        return value ? "Y" : "N";
     }
 
 }
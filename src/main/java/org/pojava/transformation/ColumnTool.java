@@ -0,0 +1,204 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.util.Converter;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * ColumnTool converts whole columns of values at once, in simple loops over arrays, rather than
+ * wrapping and converting each value in turn.
+ *
+ * @author John Pile
+ */
+public class ColumnTool {
+
+    /**
+     * Convert epoch milliseconds to Timestamps.
+     *
+     * @param millis milliseconds since the epoch
+     * @return one Timestamp per value
+     */
+    public static Timestamp[] toTimestamps(long[] millis) {
+        Timestamp[] into = new Timestamp[millis.length];
+        for (int i = 0; i < millis.length; i++) {
+            into[i] = new Timestamp(millis[i]);
+        }
+        return into;
+    }
+
+    /**
+     * Convert epoch milliseconds to DateTimes.
+     *
+     * @param millis milliseconds since the epoch
+     * @return one DateTime per value
+     */
+    public static DateTime[] toDateTimes(long[] millis) {
+        DateTime[] into = new DateTime[millis.length];
+        for (int i = 0; i < millis.length; i++) {
+            into[i] = new DateTime(millis[i]);
+        }
+        return into;
+    }
+
+    /**
+     * Convert dates to epoch milliseconds.
+     *
+     * @param dates     dates, which may include nulls
+     * @param nullValue value standing in for a null date
+     * @return milliseconds since the epoch, one per date
+     */
+    public static long[] toMillis(Date[] dates, long nullValue) {
+        long[] into = new long[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            Date date = dates[i];
+            into[i] = date == null ? nullValue : date.getTime();
+        }
+        return into;
+    }
+
+    /**
+     * Box a column of ints.
+     */
+    public static Integer[] box(int[] values) {
+        Integer[] into = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            into[i] = values[i];
+        }
+        return into;
+    }
+
+    /**
+     * Box a column of longs.
+     */
+    public static Long[] box(long[] values) {
+        Long[] into = new Long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            into[i] = values[i];
+        }
+        return into;
+    }
+
+    /**
+     * Unbox a column of Integers.
+     *
+     * @param values    Integers, which may include nulls
+     * @param nullValue value standing in for a null
+     * @return one int per value
+     */
+    public static int[] unbox(Integer[] values, int nullValue) {
+        int[] into = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Integer value = values[i];
+            into[i] = value == null ? nullValue : value;
+        }
+        return into;
+    }
+
+    /**
+     * Unbox a column of Longs.
+     *
+     * @param values    Longs, which may include nulls
+     * @param nullValue value standing in for a null
+     * @return one long per value
+     */
+    public static long[] unbox(Long[] values, long nullValue) {
+        long[] into = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Long value = values[i];
+            into[i] = value == null ? nullValue : value;
+        }
+        return into;
+    }
+
+    /**
+     * Convert a column of values of one declared type back through an UncheckedAdaptor,
+     * returning the converted values. A DefaultAdaptor's rule is looked up once for each run of
+     * values sharing a class and applied in a single loop. Other adaptors convert each value as
+     * a binding.
+     *
+     * @param adaptor inbound conversion
+     * @param type    declared class of every value
+     * @param values  values, which may include nulls
+     * @return converted values, one per value
+     */
+    public static Object[] inbound(UncheckedAdaptor adaptor, Class<?> type, Object[] values) {
+        Object[] into = new Object[values.length];
+        if (adaptor.getClass() == DefaultAdaptor.class) {
+            if (type == Time.class) {
+                System.arraycopy(values, 0, into, 0, values.length);
+                return into;
+            }
+            Class<?> ruled = null;
+            Converter rule = DefaultAdaptor.PASS;
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                if (value.getClass() != ruled) {
+                    ruled = value.getClass();
+                    rule = DefaultAdaptor.inboundRule(ruled);
+                }
+                into[i] = rule.convert(value);
+            }
+            return into;
+        }
+        for (int i = 0; i < values.length; i++) {
+            UncheckedBinding binding = adaptor.inbound(new UncheckedBinding(type, values[i]));
+            into[i] = binding == null ? null : binding.getObj();
+        }
+        return into;
+    }
+
+    /**
+     * Convert a column of values of one declared type through an UncheckedAdaptor, returning the
+     * converted values. A DefaultAdaptor's rule for the type is looked up once and applied in a
+     * single loop. Other adaptors convert each value as a binding.
+     *
+     * @param adaptor outbound conversion
+     * @param type    declared class of every value
+     * @param values  values, which may include nulls
+     * @return converted values, one per value
+     */
+    public static Object[] outbound(UncheckedAdaptor adaptor, Class<?> type, Object[] values) {
+        Object[] into = new Object[values.length];
+        if (adaptor.getClass() == DefaultAdaptor.class) {
+            Converter rule = DefaultAdaptor.outboundRule(type);
+            if (rule == DefaultAdaptor.PASS) {
+                System.arraycopy(values, 0, into, 0, values.length);
+                return into;
+            }
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                into[i] = value == null ? null : rule.convert(value);
+            }
+            return into;
+        }
+        for (int i = 0; i < values.length; i++) {
+            UncheckedBinding binding = adaptor.outbound(new UncheckedBinding(type, values[i]));
+            into[i] = binding == null ? null : binding.getObj();
+        }
+        return into;
+    }
+
+}
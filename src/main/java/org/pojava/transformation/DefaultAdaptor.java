@@ -18,20 +18,121 @@ package org.pojava.transformation;
 
 import org.pojava.datetime.DateTime;
 import org.pojava.lang.Binding;
+import org.pojava.lang.ImmutableBinding;
 import org.pojava.lang.UncheckedBinding;
+import org.pojava.util.Converter;
 
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The DefaultAdaptor passes most data through directly, but performs some specialized
  * transformations on date types.
+ * <p/>
+ * The conversion for each class is decided once and kept in a table, so adapting a value costs
+ * a single lookup rather than a series of type checks. ColumnTool and HydrationPlan read the
+ * same table.
  *
  * @author John Pile
  */
 public class DefaultAdaptor implements UncheckedAdaptor {
 
+    private static final Binding<Timestamp> NULL_TIMESTAMP = ImmutableBinding.nullOf(Timestamp.class);
+
+    /**
+     * Returns a value as it is.
+     */
+    static final Converter PASS = new Converter() {
+        public Object convert(Object value) {
+            return value;
+        }
+    };
+
+    private static final Converter DATE_TO_DATETIME = new Converter() {
+        public Object convert(Object value) {
+            return new DateTime(((Date) value).getTime());
+        }
+    };
+
+    private static final Converter DATETIME_TO_TIMESTAMP = new Converter() {
+        public Object convert(Object value) {
+            return ((DateTime) value).toTimestamp();
+        }
+    };
+
+    private static final Converter DATE_TO_TIMESTAMP = new Converter() {
+        public Object convert(Object value) {
+            return new Timestamp(((Date) value).getTime());
+        }
+    };
+
+    /**
+     * Inbound rules, by class of value.
+     */
+    private static final Map<Class<?>, Converter> inbound = new ConcurrentHashMap<Class<?>, Converter>();
+
+    /**
+     * Outbound rules, by declared type of binding.
+     */
+    private static final Map<Class<?>, Converter> outbound = new ConcurrentHashMap<Class<?>, Converter>();
+
+    static {
+        inbound.put(String.class, PASS);
+        inbound.put(Integer.class, PASS);
+        inbound.put(Long.class, PASS);
+        inbound.put(Boolean.class, PASS);
+        inbound.put(Date.class, DATE_TO_DATETIME);
+        inbound.put(Timestamp.class, DATE_TO_DATETIME);
+        inbound.put(java.sql.Date.class, DATE_TO_DATETIME);
+        inbound.put(Time.class, DATE_TO_DATETIME);
+        outbound.put(String.class, PASS);
+        outbound.put(Integer.class, PASS);
+        outbound.put(Long.class, PASS);
+        outbound.put(Boolean.class, PASS);
+        outbound.put(Time.class, PASS);
+        outbound.put(DateTime.class, DATETIME_TO_TIMESTAMP);
+        outbound.put(Date.class, DATE_TO_TIMESTAMP);
+        outbound.put(Timestamp.class, DATE_TO_TIMESTAMP);
+        outbound.put(java.sql.Date.class, DATE_TO_TIMESTAMP);
+    }
+
+    /**
+     * The inbound rule for a class of value: any Date becomes a DateTime, and anything else
+     * passes. ColumnTool and HydrationPlan share these rules so they cannot drift apart.
+     *
+     * @param type class of a non-null value
+     * @return converter to a DateTime, or PASS
+     */
+    static Converter inboundRule(Class<?> type) {
+        Converter rule = inbound.get(type);
+        if (rule == null) {
+            rule = Date.class.isAssignableFrom(type) ? DATE_TO_DATETIME : PASS;
+            inbound.put(type, rule);
+        }
+        return rule;
+    }
+
+    /**
+     * The outbound rule for a declared type: a DateTime or any Date but a Time becomes a
+     * Timestamp, and anything else passes. JdbcBinder applies it to each value directly, so
+     * binding through a DefaultAdaptor creates no Binding per value.
+     *
+     * @param type declared class of a non-null value
+     * @return converter to a Timestamp, or one returning its value unchanged
+     */
+    public static Converter outboundRule(Class<?> type) {
+        Converter rule = outbound.get(type);
+        if (rule == null) {
+            rule = DateTime.class.equals(type) ? DATETIME_TO_TIMESTAMP : Date.class
+                    .isAssignableFrom(type) ? DATE_TO_TIMESTAMP : PASS;
+            outbound.put(type, rule);
+        }
+        return rule;
+    }
+
     public Class<?> inboundType() {
         return Object.class;
     }
@@ -44,45 +145,39 @@ public class DefaultAdaptor implements UncheckedAdaptor {
      * Inbound is typically converting JDBC values to local POJO values.
      */
     public UncheckedBinding inbound(UncheckedBinding inBinding) {
-        UncheckedBinding outBinding = inBinding;
-        if (inBinding == null)
+        if (inBinding == null) {
             return null;
-        if (inBinding.getObj() == null) {
-            return outBinding;
         }
-        if (Time.class.equals(inBinding.getType())) {
-            return outBinding;
+        Object obj = inBinding.getObj();
+        if (obj == null || Time.class == inBinding.getType()) {
+            return inBinding;
         }
-        if (Date.class.isAssignableFrom(inBinding.getObj().getClass())) {
-            outBinding = new Binding<DateTime>(DateTime.class, new DateTime(((Date) inBinding
-                    .getObj()).getTime()));
+        Converter rule = inboundRule(obj.getClass());
+        if (rule == PASS) {
+            return inBinding;
         }
-        return outBinding;
+        return new Binding<DateTime>(DateTime.class, (DateTime) rule.convert(obj));
     }
 
     /**
      * This default outbound adaptor caters to the currently wide JDBC support for the Timestamp
-     * object. As JDBC evolves over time, this may need to be adjusted or replaced.
+     * object. As JDBC evolves over time, this may need to be adjusted or replaced. A null of a
+     * type that would become a Timestamp is returned as a shared null Timestamp binding; any
+     * other null is returned as it is.
      */
     public UncheckedBinding outbound(UncheckedBinding outBinding) {
-        UncheckedBinding inBinding = outBinding;
-        if (outBinding == null)
+        if (outBinding == null) {
             return null;
-        if (outBinding.getObj() == null) {
-            inBinding = new Binding<Timestamp>(Timestamp.class, null);
         }
-        if (Time.class == outBinding.getType()) {
-            return inBinding;
-        }
-        if (outBinding.getType().equals(DateTime.class)) {
-            inBinding = new Binding<Timestamp>(Timestamp.class,
-                    ((DateTime) outBinding.getObj()).toTimestamp());
+        Converter rule = outboundRule(outBinding.getType());
+        if (rule == PASS) {
+            return outBinding;
         }
-        if (Date.class.isAssignableFrom(outBinding.getType())) {
-            inBinding = new Binding<Timestamp>(Timestamp.class, new Timestamp(
-                    ((Date) outBinding.getObj()).getTime()));
+        if (outBinding.getObj() == null) {
+            return NULL_TIMESTAMP;
         }
-        return inBinding;
+        return new Binding<Timestamp>(Timestamp.class, (Timestamp) rule.convert(outBinding
+                .getObj()));
     }
 
 }
@@ -0,0 +1,438 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.lang.Binding;
+import org.pojava.lang.ImmutableBinding;
+import org.pojava.util.ConversionService;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An EnumAdaptor translates an enum to and from the code that represents it externally, such
+ * as its ordinal, its name, or a short code of your choosing.
+ * <p/>
+ * Outbound translation indexes an array by ordinal and returns a shared immutable binding.
+ * Inbound translation of integer codes indexes a dense array when the codes span a small range,
+ * and of single-character codes a dense array by character. Other string codes are found
+ * through a perfect hash computed when the adaptor is built, costing one hash and one
+ * comparison. Codes that no perfect hash can separate, such as distinct strings sharing a
+ * hashCode, are found by binary search instead. No translation allocates.
+ *
+ * @author John Pile
+ */
+public abstract class EnumAdaptor<E extends Enum<E>, O> extends BindingAdaptor<E, O> {
+
+    private final Class<E> enumType;
+    private final Class<O> codeType;
+    private final E[] constants;
+    private final O[] codes;
+    private final Binding<O>[] outbound;
+    private final Binding<E>[] inbound;
+
+    @SuppressWarnings("unchecked")
+    private EnumAdaptor(Class<E> enumType, Class<O> codeType, O[] codes) {
+        this.enumType = enumType;
+        this.codeType = codeType;
+        this.constants = enumType.getEnumConstants();
+        if (codes.length != constants.length) {
+            throw new IllegalArgumentException("Expected " + constants.length + " codes for "
+                    + enumType.getName() + " but got " + codes.length + ".");
+        }
+        this.codes = codes;
+        this.outbound = (Binding<O>[]) new Binding<?>[constants.length];
+        this.inbound = (Binding<E>[]) new Binding<?>[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+            outbound[i] = new ImmutableBinding<O>(codeType, codes[i]);
+            inbound[i] = new ImmutableBinding<E>(enumType, constants[i]);
+        }
+    }
+
+    /**
+     * Translate an enum to and from its ordinal.
+     */
+    public static <E extends Enum<E>> EnumAdaptor<E, Integer> byOrdinal(Class<E> enumType) {
+        int[] ordinals = new int[enumType.getEnumConstants().length];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = i;
+        }
+        return new IntCodes<E, Integer>(enumType, Integer.class, boxed(ordinals), ordinals);
+    }
+
+    /**
+     * Translate an enum to and from its name.
+     */
+    public static <E extends Enum<E>> EnumAdaptor<E, String> byName(Class<E> enumType) {
+        E[] constants = enumType.getEnumConstants();
+        String[] names = new String[constants.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = constants[i].name();
+        }
+        return new StringCodes<E>(enumType, names);
+    }
+
+    /**
+     * Translate an enum to and from integer codes.
+     *
+     * @param enumType class of enum
+     * @param codes    distinct code of each constant, in ordinal order
+     */
+    public static <E extends Enum<E>> EnumAdaptor<E, Integer> byCode(Class<E> enumType,
+                                                                     int... codes) {
+        return new IntCodes<E, Integer>(enumType, Integer.class, boxed(codes), codes);
+    }
+
+    /**
+     * Translate an enum to and from string codes.
+     *
+     * @param enumType class of enum
+     * @param codes    distinct code of each constant, in ordinal order
+     */
+    public static <E extends Enum<E>> EnumAdaptor<E, String> byCode(Class<E> enumType,
+                                                                    String... codes) {
+        return new StringCodes<E>(enumType, codes.clone());
+    }
+
+    public Class<E> inboundType() {
+        return enumType;
+    }
+
+    public Class<O> outboundType() {
+        return codeType;
+    }
+
+    /**
+     * Returns a shared, immutable binding.
+     *
+     * @throws IllegalArgumentException if the code matches no constant
+     */
+    public Binding<E> inbound(Binding<O> fromBinding) {
+        if (fromBinding == null || fromBinding.getObj() == null) {
+            return ImmutableBinding.nullOf(enumType);
+        }
+        return inbound[ordinalOf(fromBinding.getValue())];
+    }
+
+    /**
+     * Returns a shared, immutable binding.
+     */
+    public Binding<O> outbound(Binding<E> fromBinding) {
+        if (fromBinding == null || fromBinding.getObj() == null) {
+            return ImmutableBinding.nullOf(codeType);
+        }
+        return outbound[fromBinding.getValue().ordinal()];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the code matches no constant
+     */
+    @Override
+    public E toInbound(O value) {
+        return value == null ? null : constants[ordinalOf(value)];
+    }
+
+    @Override
+    public O toOutbound(E value) {
+        return value == null ? null : codes[value.ordinal()];
+    }
+
+    /**
+     * Ordinal of the constant having a code. The code is taken as an Object, since bindings
+     * built through unchecked paths may carry a value of another class than the code type.
+     *
+     * @throws IllegalArgumentException if the code matches no constant
+     */
+    abstract int ordinalOf(Object code);
+
+    IllegalArgumentException unknown(Object code) {
+        return new IllegalArgumentException("No " + enumType.getSimpleName() + " has code '"
+                + code + "'.");
+    }
+
+    /**
+     * Box integer codes for the shared outbound bindings.
+     */
+    private static Integer[] boxed(int[] codes) {
+        Integer[] boxed = new Integer[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            boxed[i] = codes[i];
+        }
+        return boxed;
+    }
+
+    /**
+     * Integer codes, found by a dense array over their range, or by binary search when the
+     * range is too wide to hold. Any Number holding a whole int is accepted as a code, since
+     * JDBC drivers often return Long or BigDecimal for integer columns. The code type is left as
+     * a type parameter, always Integer, so that the compiler adds no cast to Integer in front of
+     * toInbound.
+     */
+    private static class IntCodes<E extends Enum<E>, O> extends EnumAdaptor<E, O> {
+
+        private static final int MAX_DENSE = 1024;
+
+        private final int min;
+        private final int[] dense;
+        private final int[] sorted;
+        private final int[] sortedOrdinals;
+
+        IntCodes(Class<E> enumType, Class<O> codeType, O[] boxed, int[] codes) {
+            super(enumType, codeType, boxed);
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int code : codes) {
+                lo = Math.min(lo, code);
+                hi = Math.max(hi, code);
+            }
+            this.min = lo;
+            long span = codes.length == 0 ? 0 : (long) hi - lo + 1;
+            if (span <= MAX_DENSE) {
+                this.dense = new int[(int) span];
+                Arrays.fill(dense, -1);
+                for (int i = 0; i < codes.length; i++) {
+                    if (dense[codes[i] - lo] >= 0) {
+                        throw new IllegalArgumentException("Duplicate code " + codes[i] + ".");
+                    }
+                    dense[codes[i] - lo] = i;
+                }
+                this.sorted = null;
+                this.sortedOrdinals = null;
+            } else {
+                this.dense = null;
+                long[] pairs = new long[codes.length];
+                for (int i = 0; i < codes.length; i++) {
+                    pairs[i] = ((long) codes[i] << 32) | i;
+                }
+                Arrays.sort(pairs);
+                this.sorted = new int[codes.length];
+                this.sortedOrdinals = new int[codes.length];
+                for (int i = 0; i < pairs.length; i++) {
+                    sorted[i] = (int) (pairs[i] >> 32);
+                    sortedOrdinals[i] = (int) pairs[i];
+                    if (i > 0 && sorted[i] == sorted[i - 1]) {
+                        throw new IllegalArgumentException("Duplicate code " + sorted[i] + ".");
+                    }
+                }
+            }
+        }
+
+        int ordinalOf(Object code) {
+            if (!(code instanceof Number)) {
+                throw unknown(code);
+            }
+            int value;
+            try {
+                value = (int) ConversionService.exactLong((Number) code, Integer.MIN_VALUE,
+                        Integer.MAX_VALUE);
+            } catch (ArithmeticException ex) {
+                throw unknown(code);
+            }
+            if (dense != null) {
+                long index = (long) value - min;
+                if (index >= 0 && index < dense.length && dense[(int) index] >= 0) {
+                    return dense[(int) index];
+                }
+            } else {
+                int found = Arrays.binarySearch(sorted, value);
+                if (found >= 0) {
+                    return sortedOrdinals[found];
+                }
+            }
+            throw unknown(code);
+        }
+    }
+
+    /**
+     * String codes, found by a dense array over their characters when every code is a single
+     * character, otherwise by a perfect hash, or by binary search when no perfect hash is found.
+     */
+    private static class StringCodes<E extends Enum<E>> extends EnumAdaptor<E, String> {
+
+        private static final int MAX_DENSE = 256;
+
+        /**
+         * Most doublings of the hash table tried beyond the smallest that fits every code.
+         */
+        private static final int MAX_EXTRA_BITS = 4;
+
+        private final char minChar;
+        private final int[] dense;
+        private final String[] keys;
+        private final int[] ordinals;
+        private final int multiplier;
+        private final int shift;
+        private final String[] sorted;
+        private final int[] sortedOrdinals;
+
+        StringCodes(Class<E> enumType, String[] codes) {
+            super(enumType, String.class, codes);
+            for (String code : codes) {
+                if (code == null) {
+                    throw new IllegalArgumentException("Codes cannot be null.");
+                }
+            }
+            char lo = Character.MAX_VALUE;
+            char hi = Character.MIN_VALUE;
+            boolean single = codes.length > 0;
+            for (String code : codes) {
+                if (code.length() != 1) {
+                    single = false;
+                    break;
+                }
+                lo = (char) Math.min(lo, code.charAt(0));
+                hi = (char) Math.max(hi, code.charAt(0));
+            }
+            if (single && hi - lo < MAX_DENSE) {
+                this.minChar = lo;
+                this.dense = new int[hi - lo + 1];
+                Arrays.fill(dense, -1);
+                for (int i = 0; i < codes.length; i++) {
+                    int index = codes[i].charAt(0) - lo;
+                    if (dense[index] >= 0) {
+                        throw new IllegalArgumentException("Duplicate code '" + codes[i] + "'.");
+                    }
+                    dense[index] = i;
+                }
+                this.keys = null;
+                this.ordinals = null;
+                this.multiplier = 0;
+                this.shift = 0;
+                this.sorted = null;
+                this.sortedOrdinals = null;
+                return;
+            }
+            this.minChar = 0;
+            this.dense = null;
+            Integer[] order = new Integer[codes.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            final String[] byCode = codes;
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return byCode[a].compareTo(byCode[b]);
+                }
+            });
+            for (int i = 1; i < order.length; i++) {
+                if (codes[order[i]].equals(codes[order[i - 1]])) {
+                    throw new IllegalArgumentException("Duplicate code '" + codes[order[i]]
+                            + "'.");
+                }
+            }
+            int[] found = perfectHash(codes);
+            if (found != null) {
+                int bits = found[1];
+                this.multiplier = found[0];
+                this.shift = 32 - bits;
+                this.keys = new String[1 << bits];
+                this.ordinals = new int[1 << bits];
+                for (int i = 0; i < codes.length; i++) {
+                    int slot = (codes[i].hashCode() * multiplier) >>> shift;
+                    keys[slot] = codes[i];
+                    ordinals[slot] = i;
+                }
+                this.sorted = null;
+                this.sortedOrdinals = null;
+            } else {
+                this.multiplier = 0;
+                this.shift = 0;
+                this.keys = null;
+                this.ordinals = null;
+                this.sorted = new String[codes.length];
+                this.sortedOrdinals = new int[codes.length];
+                for (int i = 0; i < order.length; i++) {
+                    sorted[i] = codes[order[i]];
+                    sortedOrdinals[i] = order[i];
+                }
+            }
+        }
+
+        /**
+         * Search for a multiplier placing every code in its own slot, widening the table a few
+         * times when a few hundred multipliers fail.
+         *
+         * @return the multiplier and table bits, or null if codes share a hashCode or no
+         *         multiplier was found
+         */
+        private static int[] perfectHash(String[] codes) {
+            int[] hashes = new int[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                hashes[i] = codes[i].hashCode();
+            }
+            int[] ascending = hashes.clone();
+            Arrays.sort(ascending);
+            for (int i = 1; i < ascending.length; i++) {
+                if (ascending[i] == ascending[i - 1]) {
+                    // No multiplier separates equal hashes.
+                    return null;
+                }
+            }
+            int minBits = 1;
+            while (1 << minBits < codes.length * 2) {
+                minBits++;
+            }
+            int seed = 0x9E3779B9;
+            for (int bits = minBits; bits <= minBits + MAX_EXTRA_BITS; bits++) {
+                boolean[] taken = new boolean[1 << bits];
+                for (int attempt = 0; attempt < 256; attempt++) {
+                    int m = seed | 1;
+                    seed = seed * 0x5DEECE6D + 0xB;
+                    Arrays.fill(taken, false);
+                    boolean perfect = true;
+                    for (int i = 0; i < hashes.length && perfect; i++) {
+                        int slot = (hashes[i] * m) >>> (32 - bits);
+                        perfect = !taken[slot];
+                        taken[slot] = true;
+                    }
+                    if (perfect) {
+                        return new int[]{m, bits};
+                    }
+                }
+            }
+            return null;
+        }
+
+        int ordinalOf(Object obj) {
+            if (!(obj instanceof String)) {
+                throw unknown(obj);
+            }
+            String code = (String) obj;
+            if (dense != null) {
+                if (code.length() == 1) {
+                    int index = code.charAt(0) - minChar;
+                    if (index >= 0 && index < dense.length && dense[index] >= 0) {
+                        return dense[index];
+                    }
+                }
+            } else if (keys != null) {
+                int slot = (code.hashCode() * multiplier) >>> shift;
+                String key = keys[slot];
+                if (key != null && key.equals(code)) {
+                    return ordinals[slot];
+                }
+            } else {
+                int found = Arrays.binarySearch(sorted, code);
+                if (found >= 0) {
+                    return sortedOrdinals[found];
+                }
+            }
+            throw unknown(code);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+import org.pojava.exception.ReflectionException;
+import org.pojava.lang.PropertyLayout;
+import org.pojava.util.Converter;
+import org.pojava.util.ReflectionTool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A HydrationPlan populates beans from rows of JDBC values, and extracts rows of JDBC values
+ * from beans, for a fixed list of columns each named for a bean property.
+ * <p/>
+ * Each column is compiled once into a step that converts a value and writes it to its setter,
+ * or reads its getter and converts the result. Columns without an adaptor of their own follow
+ * the conversions of the DefaultAdaptor, chosen by property type when the plan is built. Columns
+ * with a BindingAdaptor translate values directly. Either way, no Binding is created per value.
+ * <p/>
+ * A null is handed to a column's BindingAdaptor like any other value, so an adaptor may map it
+ * to a code and back. A null that reaches a property of primitive type is not written, and the
+ * property keeps its default.
+ *
+ * @author John Pile
+ */
+public class HydrationPlan<T> {
+
+    private static final Map<Class<?>, Map<String, HydrationPlan<?>>> plans = new ConcurrentHashMap<Class<?>, Map<String, HydrationPlan<?>>>();
+
+    private final Class<T> type;
+    private final PropertyLayout layout;
+    private final Column[] columns;
+
+    /**
+     * Construct a plan for the named properties, in column order.
+     *
+     * @param type    class of bean
+     * @param columns property names in column order
+     */
+    public HydrationPlan(Class<T> type, String... columns) {
+        this(type, columns, Collections.<String, BindingAdaptor<?, ?>>emptyMap());
+    }
+
+    /**
+     * Construct a plan for the named properties, translating some through adaptors whose
+     * inbound type is that of the property and whose outbound type is that of the column.
+     *
+     * @param type     class of bean
+     * @param columns  property names in column order
+     * @param adaptors adaptors by property name, for properties not using default conversions
+     */
+    public HydrationPlan(Class<T> type, String[] columns,
+                         Map<String, BindingAdaptor<?, ?>> adaptors) {
+        this.type = type;
+        this.layout = new PropertyLayout(ReflectionTool.accessors(type), columns);
+        this.columns = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            BindingAdaptor<?, ?> adaptor = adaptors.get(columns[i]);
+            Method setter = layout.getSetter(i);
+            Class<?> propertyType = setter == null ? layout.getPropertyType(i) : setter
+                    .getParameterTypes()[0];
+            this.columns[i] = adaptor == null ? defaultColumn(propertyType) : new Adapted(adaptor);
+            this.columns[i].getter = layout.getGetter(i);
+            this.columns[i].setter = setter;
+            this.columns[i].primitive = propertyType.isPrimitive();
+        }
+    }
+
+    /**
+     * Return the plan for the named properties of a class, using default conversions. Plans are
+     * built once per class and column list and shared thereafter.
+     *
+     * @param type    class of bean
+     * @param columns property names in column order
+     * @return cached plan
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> HydrationPlan<T> of(Class<T> type, String... columns) {
+        Map<String, HydrationPlan<?>> byColumns = plans.get(type);
+        if (byColumns == null) {
+            byColumns = new ConcurrentHashMap<String, HydrationPlan<?>>();
+            plans.put(type, byColumns);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            sb.append(column).append(',');
+        }
+        String key = sb.toString();
+        HydrationPlan<?> plan = byColumns.get(key);
+        if (plan == null) {
+            plan = new HydrationPlan<T>(type, columns);
+            byColumns.put(key, plan);
+        }
+        return (HydrationPlan<T>) plan;
+    }
+
+    public PropertyLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Number of columns in each row.
+     */
+    public int width() {
+        return columns.length;
+    }
+
+    /**
+     * Construct a new bean from a row.
+     *
+     * @param row JDBC values in column order
+     * @return a new bean populated from the row
+     */
+    public T hydrate(Object[] row) {
+        return hydrate(row, newInstance());
+    }
+
+    /**
+     * Populate an existing bean from a row. Read-only properties are skipped.
+     *
+     * @param row  JDBC values in column order
+     * @param bean bean to populate
+     * @return the populated bean
+     */
+    public T hydrate(Object[] row, T bean) {
+        Object[] args = new Object[1];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].write(bean, row[i], args);
+        }
+        return bean;
+    }
+
+    /**
+     * Construct a new bean from the current row of a ResultSet, reading columns by position.
+     *
+     * @param rs ResultSet positioned on a row whose columns are in plan order
+     * @return a new bean populated from the row
+     * @throws SQLException if a column cannot be read
+     */
+    public T hydrate(ResultSet rs) throws SQLException {
+        T bean = newInstance();
+        Object[] args = new Object[1];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].write(bean, rs.getObject(i + 1), args);
+        }
+        return bean;
+    }
+
+    /**
+     * Extract the properties of a bean, converted for JDBC, into a row.
+     *
+     * @param bean  bean to read
+     * @param reuse row to fill, or null to allocate one
+     * @return the row holding the converted values
+     */
+    public Object[] extract(T bean, Object[] reuse) {
+        Object[] row = reuse == null || reuse.length < columns.length ? new Object[columns.length]
+                : reuse;
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = columns[i].read(bean);
+        }
+        return row;
+    }
+
+    private T newInstance() {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        }
+    }
+
+    /**
+     * Choose the default conversions for a property type, as the DefaultAdaptor would apply
+     * them to its values.
+     */
+    private static Column defaultColumn(Class<?> propertyType) {
+        Converter outbound = DefaultAdaptor.outboundRule(propertyType);
+        boolean inbound = propertyType == DateTime.class;
+        if (outbound == DefaultAdaptor.PASS && !inbound) {
+            return new Column();
+        }
+        return new Ruled(outbound, inbound);
+    }
+
+    /**
+     * One column, fused with its property's accessors. Values, null or not, pass through
+     * unchanged.
+     */
+    private static class Column {
+
+        private Method getter;
+        private Method setter;
+        private boolean primitive;
+
+        Object toProperty(Object value) {
+            return value;
+        }
+
+        Object toColumn(Object value) {
+            return value;
+        }
+
+        final void write(Object bean, Object value, Object[] args) {
+            if (setter == null) {
+                return;
+            }
+            Object converted = toProperty(value);
+            if (converted == null && primitive) {
+                return;
+            }
+            args[0] = converted;
+            try {
+                setter.invoke(bean, args);
+            } catch (IllegalAccessException ex) {
+                throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".",
+                        ex);
+            } catch (InvocationTargetException ex) {
+                throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".",
+                        ex);
+            } catch (IllegalArgumentException ex) {
+                throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".",
+                        ex);
+            } finally {
+                args[0] = null;
+            }
+        }
+
+        final Object read(Object bean) {
+            try {
+                return toColumn(getter.invoke(bean, (Object[]) null));
+            } catch (IllegalAccessException ex) {
+                throw new ReflectionException("Failed to invoke getter " + getter.getName() + ".",
+                        ex);
+            } catch (InvocationTargetException ex) {
+                throw new ReflectionException("Failed to invoke getter " + getter.getName() + ".",
+                        ex);
+            }
+        }
+    }
+
+    /**
+     * A property converted by the DefaultAdaptor's rules. A date read into a DateTime property
+     * becomes a DateTime. Nulls pass unchanged.
+     */
+    private static class Ruled extends Column {
+
+        private final Converter outbound;
+        private final boolean inbound;
+
+        Ruled(Converter outbound, boolean inbound) {
+            this.outbound = outbound;
+            this.inbound = inbound;
+        }
+
+        Object toProperty(Object value) {
+            return inbound && value != null ? DefaultAdaptor.inboundRule(value.getClass())
+                    .convert(value) : value;
+        }
+
+        Object toColumn(Object value) {
+            return value == null ? null : outbound.convert(value);
+        }
+    }
+
+    /**
+     * A property translated by a BindingAdaptor, which sees nulls as well.
+     */
+    private static class Adapted extends Column {
+
+        private final BindingAdaptor<Object, Object> adaptor;
+
+        @SuppressWarnings("unchecked")
+        Adapted(BindingAdaptor<?, ?> adaptor) {
+            this.adaptor = (BindingAdaptor<Object, Object>) adaptor;
+        }
+
+        Object toProperty(Object value) {
+            return adaptor.toInbound(value);
+        }
+
+        Object toColumn(Object value) {
+            return adaptor.toOutbound(value);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package org.pojava.transformation;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.exception.ReflectionException;
+import org.pojava.lang.PropertyLayout;
+import org.pojava.util.ReflectionTool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A TupleCodec converts beans to and from Object[] tuples, with each offset of the tuple
+ * holding one property in the order fixed by a PropertyLayout.
+ * <p/>
+ * Tuple buffers may be passed back in for reuse, so a single buffer can serve every row of a
+ * pipeline stage.
+ *
+ * @author John Pile
+ */
+public class TupleCodec<T> {
+
+    private final Class<T> type;
+    private final PropertyLayout layout;
+
+    /**
+     * Construct a codec over every read/write property of a class, ordered by name.
+     *
+     * @param type class of bean
+     */
+    public TupleCodec(Class<T> type) {
+        this(type, ReflectionTool.propertyLayout(type));
+    }
+
+    /**
+     * Construct a codec over the named properties, in the order given.
+     *
+     * @param type       class of bean
+     * @param properties property names in tuple order
+     */
+    public TupleCodec(Class<T> type, String... properties) {
+        this(type, new PropertyLayout(ReflectionTool.accessors(type), properties));
+    }
+
+    /**
+     * Construct a codec from a predetermined layout.
+     *
+     * @param type   class of bean
+     * @param layout layout of properties in tuple order
+     */
+    public TupleCodec(Class<T> type, PropertyLayout layout) {
+        this.type = type;
+        this.layout = layout;
+    }
+
+    public PropertyLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Number of elements in each tuple.
+     */
+    public int width() {
+        return layout.size();
+    }
+
+    /**
+     * Extract the properties of a bean into a tuple.
+     *
+     * @param bean  bean to read
+     * @param reuse tuple to fill, or null to allocate one
+     * @return the tuple holding the bean's property values
+     */
+    public Object[] toTuple(T bean, Object[] reuse) {
+        int width = layout.size();
+        Object[] tuple = reuse == null || reuse.length < width ? new Object[width] : reuse;
+        int i = 0;
+        try {
+            for (i = 0; i < width; i++) {
+                tuple[i] = layout.getGetter(i).invoke(bean, (Object[]) null);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke getter "
+                    + layout.getGetter(i).getName() + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke getter "
+                    + layout.getGetter(i).getName() + ".", ex);
+        }
+        return tuple;
+    }
+
+    /**
+     * Construct a new bean from a tuple.
+     *
+     * @param tuple property values in layout order
+     * @return a new bean populated from the tuple
+     */
+    public T fromTuple(Object[] tuple) {
+        return fromTuple(tuple, newInstance(), new Object[1]);
+    }
+
+    /**
+     * Populate an existing bean from a tuple. Read-only properties are skipped.
+     *
+     * @param tuple property values in layout order
+     * @param bean  bean to populate
+     * @return the populated bean
+     */
+    public T fromTuple(Object[] tuple, T bean) {
+        return fromTuple(tuple, bean, new Object[1]);
+    }
+
+    /**
+     * Extract many beans into tuples.
+     *
+     * @param beans beans to read
+     * @param reuse tuples to fill, or null to allocate them
+     * @return array of tuples parallel to beans
+     */
+    public Object[][] toTuples(T[] beans, Object[][] reuse) {
+        Object[][] tuples = reuse == null || reuse.length < beans.length ? new Object[beans.length][]
+                : reuse;
+        for (int i = 0; i < beans.length; i++) {
+            tuples[i] = toTuple(beans[i], tuples[i]);
+        }
+        return tuples;
+    }
+
+    /**
+     * Populate many beans from tuples. Any null element of beans is filled with a new instance.
+     *
+     * @param tuples property values in layout order
+     * @param beans  beans to populate, parallel to tuples
+     * @return the populated beans
+     */
+    public T[] fromTuples(Object[][] tuples, T[] beans) {
+        Object[] args = new Object[1];
+        for (int i = 0; i < tuples.length; i++) {
+            if (beans[i] == null) {
+                beans[i] = newInstance();
+            }
+            fromTuple(tuples[i], beans[i], args);
+        }
+        return beans;
+    }
+
+    private T fromTuple(Object[] tuple, T bean, Object[] args) {
+        int width = layout.size();
+        Method setter = null;
+        try {
+            for (int i = 0; i < width; i++) {
+                setter = layout.getSetter(i);
+                if (setter != null) {
+                    args[0] = tuple[i];
+                    setter.invoke(bean, args);
+                }
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".", ex);
+        } catch (IllegalArgumentException ex) {
+            throw new ReflectionException("Failed to invoke setter " + setter.getName() + ".", ex);
+        } finally {
+            args[0] = null;
+        }
+        return bean;
+    }
+
+    private T newInstance() {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to instantiate " + type.getName() + ".", ex);
+        }
+    }
+
+}
@@ -0,0 +1,474 @@
+package org.pojava.util;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ConversionService translates values between classes using Converters registered for a
+ * (source class, target class) pair.
+ * <p/>
+ * A converter registered for a superclass or interface of the source also applies to the
+ * source. Any value may be converted to a String, and a String may be converted to any enum.
+ * Resolved converters are cached per pair, so converting a column of values costs one lookup
+ * per value and no search.
+ * <p/>
+ * The standard conversions refuse to lose information: a Number converts to an integral type
+ * only if it is whole and in range, and a String converts to a Boolean only if it reads as one.
+ * A BindingAdaptor may be registered through BindingAdaptor.registerWith.
+ *
+ * @author John Pile
+ */
+public class ConversionService {
+
+    private static final Converter IDENTITY = new Converter() {
+        public Object convert(Object value) {
+            return value;
+        }
+    };
+
+    private static final Converter TO_STRING = new Converter() {
+        public Object convert(Object value) {
+            return value.toString();
+        }
+    };
+
+    private static final Converter MISSING = new Converter() {
+        public Object convert(Object value) {
+            return null;
+        }
+    };
+
+    private static final ConversionService defaultService = new ConversionService();
+
+    private final Map<Class<?>, Map<Class<?>, Converter>> registered = new ConcurrentHashMap<Class<?>, Map<Class<?>, Converter>>();
+    private final Map<Class<?>, Map<Class<?>, Converter>> resolved = new ConcurrentHashMap<Class<?>, Map<Class<?>, Converter>>();
+
+    /**
+     * Construct a service with the standard conversions between Strings, Numbers, Booleans and
+     * date types.
+     */
+    public ConversionService() {
+        registerDefaults();
+    }
+
+    /**
+     * Return the shared service used by ReflectionTool when populating properties.
+     *
+     * @return the shared ConversionService
+     */
+    public static ConversionService getDefault() {
+        return defaultService;
+    }
+
+    /**
+     * Register a converter, replacing any previously registered for the same pair.
+     *
+     * @param from      class of source values
+     * @param to        class of target values
+     * @param converter converter from source to target
+     */
+    public void register(Class<?> from, Class<?> to, Converter converter) {
+        Map<Class<?>, Converter> targets = registered.get(from);
+        if (targets == null) {
+            targets = new ConcurrentHashMap<Class<?>, Converter>();
+            registered.put(from, targets);
+        }
+        targets.put(ReflectionTool.wrapperFor(to), converter);
+        resolved.clear();
+    }
+
+    /**
+     * Convert a value to a target class. Values already of the target class, and nulls, are
+     * returned as they are.
+     *
+     * @param value value to convert
+     * @param to    target class, which may be primitive
+     * @return converted value
+     * @throws IllegalArgumentException if no conversion is known or the value cannot convert
+     */
+    public Object convert(Object value, Class<?> to) {
+        if (value == null || ReflectionTool.wrapperFor(to).isInstance(value)) {
+            return value;
+        }
+        Converter converter = resolve(value.getClass(), to);
+        if (converter == null) {
+            throw new IllegalArgumentException("No conversion from "
+                    + value.getClass().getName() + " to " + to.getName() + ".");
+        }
+        return converter.convert(value);
+    }
+
+    /**
+     * Resolve the converter for a pair of classes.
+     *
+     * @param from class of source values
+     * @param to   target class, which may be primitive
+     * @return converter, or null if none applies
+     */
+    public Converter resolve(Class<?> from, Class<?> to) {
+        Map<Class<?>, Converter> targets = resolved.get(from);
+        if (targets == null) {
+            targets = new ConcurrentHashMap<Class<?>, Converter>();
+            resolved.put(from, targets);
+        }
+        Converter converter = targets.get(to);
+        if (converter == null) {
+            converter = search(from, ReflectionTool.wrapperFor(to));
+            targets.put(to, converter);
+        }
+        return converter == MISSING ? null : converter;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Converter search(Class<?> from, final Class<?> to) {
+        if (to.isAssignableFrom(from)) {
+            return IDENTITY;
+        }
+        for (Class<?> type : ReflectionTool.hierarchy(from)) {
+            Map<Class<?>, Converter> targets = registered.get(type);
+            if (targets != null && targets.containsKey(to)) {
+                return targets.get(to);
+            }
+        }
+        if (to == String.class) {
+            return TO_STRING;
+        }
+        if (from == String.class && to.isEnum()) {
+            final Class<? extends Enum> enumType = (Class<? extends Enum>) to;
+            return new Converter() {
+                public Object convert(Object value) {
+                    return Enum.valueOf(enumType, ((String) value).trim());
+                }
+            };
+        }
+        return MISSING;
+    }
+
+    private void registerDefaults() {
+        register(String.class, Integer.class, new Converter() {
+            public Object convert(Object value) {
+                return StringTool.parseInt((String) value);
+            }
+        });
+        register(String.class, Long.class, new Converter() {
+            public Object convert(Object value) {
+                return StringTool.parseLong((String) value);
+            }
+        });
+        register(String.class, Short.class, new Converter() {
+            public Object convert(Object value) {
+                int parsed = StringTool.parseInt((String) value);
+                if (parsed < Short.MIN_VALUE || parsed > Short.MAX_VALUE) {
+                    throw new NumberFormatException("Value out of range: \"" + value + "\"");
+                }
+                return (short) parsed;
+            }
+        });
+        register(String.class, Byte.class, new Converter() {
+            public Object convert(Object value) {
+                int parsed = StringTool.parseInt((String) value);
+                if (parsed < Byte.MIN_VALUE || parsed > Byte.MAX_VALUE) {
+                    throw new NumberFormatException("Value out of range: \"" + value + "\"");
+                }
+                return (byte) parsed;
+            }
+        });
+        register(String.class, Double.class, new Converter() {
+            public Object convert(Object value) {
+                return Double.parseDouble(((String) value).trim());
+            }
+        });
+        register(String.class, Float.class, new Converter() {
+            public Object convert(Object value) {
+                return Float.parseFloat(((String) value).trim());
+            }
+        });
+        register(String.class, BigDecimal.class, new Converter() {
+            public Object convert(Object value) {
+                return new BigDecimal(((String) value).trim());
+            }
+        });
+        register(String.class, BigInteger.class, new Converter() {
+            public Object convert(Object value) {
+                return new BigInteger(((String) value).trim());
+            }
+        });
+        register(String.class, Boolean.class, new Converter() {
+            public Object convert(Object value) {
+                return parseBoolean((String) value);
+            }
+        });
+        register(String.class, Character.class, new Converter() {
+            public Object convert(Object value) {
+                String str = (String) value;
+                return str.length() == 0 ? null : str.charAt(0);
+            }
+        });
+        register(String.class, DateTime.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime((String) value);
+            }
+        });
+        register(String.class, Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime((String) value).toDate();
+            }
+        });
+        register(String.class, Timestamp.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime((String) value).toTimestamp();
+            }
+        });
+        register(String.class, java.sql.Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new java.sql.Date(new DateTime((String) value).toMillis());
+            }
+        });
+        register(Number.class, Integer.class, new Converter() {
+            public Object convert(Object value) {
+                return (int) exactLong((Number) value, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                        Integer.class);
+            }
+        });
+        register(Number.class, Long.class, new Converter() {
+            public Object convert(Object value) {
+                return exactLong((Number) value, Long.MIN_VALUE, Long.MAX_VALUE, Long.class);
+            }
+        });
+        register(Number.class, Short.class, new Converter() {
+            public Object convert(Object value) {
+                return (short) exactLong((Number) value, Short.MIN_VALUE, Short.MAX_VALUE,
+                        Short.class);
+            }
+        });
+        register(Number.class, Byte.class, new Converter() {
+            public Object convert(Object value) {
+                return (byte) exactLong((Number) value, Byte.MIN_VALUE, Byte.MAX_VALUE,
+                        Byte.class);
+            }
+        });
+        register(Number.class, Double.class, new Converter() {
+            public Object convert(Object value) {
+                return ((Number) value).doubleValue();
+            }
+        });
+        register(Number.class, Float.class, new Converter() {
+            public Object convert(Object value) {
+                return ((Number) value).floatValue();
+            }
+        });
+        register(Number.class, BigDecimal.class, new Converter() {
+            public Object convert(Object value) {
+                return exactDecimal((Number) value, BigDecimal.class);
+            }
+        });
+        register(Number.class, BigInteger.class, new Converter() {
+            public Object convert(Object value) {
+                try {
+                    return exactDecimal((Number) value, BigInteger.class).toBigIntegerExact();
+                } catch (ArithmeticException ex) {
+                    throw lossy((Number) value, BigInteger.class);
+                }
+            }
+        });
+        register(Number.class, DateTime.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime(((Number) value).longValue());
+            }
+        });
+        register(Number.class, Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new Date(((Number) value).longValue());
+            }
+        });
+        register(Number.class, Timestamp.class, new Converter() {
+            public Object convert(Object value) {
+                return new Timestamp(((Number) value).longValue());
+            }
+        });
+        register(Number.class, java.sql.Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new java.sql.Date(((Number) value).longValue());
+            }
+        });
+        register(Date.class, DateTime.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime(((Date) value).getTime());
+            }
+        });
+        register(Timestamp.class, DateTime.class, new Converter() {
+            public Object convert(Object value) {
+                return new DateTime((Timestamp) value);
+            }
+        });
+        register(Date.class, Timestamp.class, new Converter() {
+            public Object convert(Object value) {
+                return new Timestamp(((Date) value).getTime());
+            }
+        });
+        register(Date.class, java.sql.Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new java.sql.Date(((Date) value).getTime());
+            }
+        });
+        register(Date.class, Time.class, new Converter() {
+            public Object convert(Object value) {
+                return new Time(((Date) value).getTime());
+            }
+        });
+        register(Date.class, Long.class, new Converter() {
+            public Object convert(Object value) {
+                return ((Date) value).getTime();
+            }
+        });
+        register(DateTime.class, Date.class, new Converter() {
+            public Object convert(Object value) {
+                return ((DateTime) value).toDate();
+            }
+        });
+        register(DateTime.class, Timestamp.class, new Converter() {
+            public Object convert(Object value) {
+                return ((DateTime) value).toTimestamp();
+            }
+        });
+        register(DateTime.class, java.sql.Date.class, new Converter() {
+            public Object convert(Object value) {
+                return new java.sql.Date(((DateTime) value).toMillis());
+            }
+        });
+        register(DateTime.class, Time.class, new Converter() {
+            public Object convert(Object value) {
+                return new Time(((DateTime) value).toMillis());
+            }
+        });
+        register(DateTime.class, Long.class, new Converter() {
+            public Object convert(Object value) {
+                return ((DateTime) value).toMillis();
+            }
+        });
+        register(Boolean.class, Integer.class, new Converter() {
+            public Object convert(Object value) {
+                return (Boolean) value ? 1 : 0;
+            }
+        });
+        register(Integer.class, Boolean.class, new Converter() {
+            public Object convert(Object value) {
+                return (Integer) value != 0;
+            }
+        });
+    }
+
+    /**
+     * Parse true/false, yes/no, on/off, t/f, y/n or 1/0, ignoring case and surrounding space.
+     */
+    private static Boolean parseBoolean(String value) {
+        String str = value.trim();
+        if (str.length() == 1) {
+            switch (Character.toLowerCase(str.charAt(0))) {
+                case 't':
+                case 'y':
+                case '1':
+                    return Boolean.TRUE;
+                case 'f':
+                case 'n':
+                case '0':
+                    return Boolean.FALSE;
+                default:
+                    break;
+            }
+        } else if (str.equalsIgnoreCase("true") || str.equalsIgnoreCase("yes")
+                || str.equalsIgnoreCase("on")) {
+            return Boolean.TRUE;
+        } else if (str.equalsIgnoreCase("false") || str.equalsIgnoreCase("no")
+                || str.equalsIgnoreCase("off")) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Cannot convert \"" + value + "\" to Boolean.");
+    }
+
+    /**
+     * The value of a Number as a long, provided it is whole and within a range. Every standard
+     * conversion to an integral type, and every PrimitiveBinding, checks its Numbers here.
+     *
+     * @param value a non-null Number
+     * @param min   smallest acceptable result
+     * @param max   largest acceptable result
+     * @return the value as a long
+     * @throws ArithmeticException if the value has a fraction or lies outside the range
+     */
+    public static long exactLong(Number value, long min, long max) {
+        long result;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            result = value.longValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            // 0x1p63 is the first double beyond Long.MAX_VALUE.
+            if (d != Math.floor(d) || d < Long.MIN_VALUE || d >= 0x1p63) {
+                throw new ArithmeticException(value + " is not a whole long.");
+            }
+            result = (long) d;
+        } else {
+            BigDecimal big = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(
+                    value.toString());
+            result = big.longValueExact();
+        }
+        if (result < min || result > max) {
+            throw new ArithmeticException(value + " lies outside " + min + ".." + max + ".");
+        }
+        return result;
+    }
+
+    /**
+     * The exact decimal value of a Number, refusing NaN and the infinities.
+     */
+    private static BigDecimal exactDecimal(Number value, Class<?> to) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw lossy(value, to);
+            }
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    private static long exactLong(Number value, long min, long max, Class<?> to) {
+        try {
+            return exactLong(value, min, max);
+        } catch (ArithmeticException ex) {
+            throw lossy(value, to);
+        }
+    }
+
+    private static IllegalArgumentException lossy(Number value, Class<?> to) {
+        return new IllegalArgumentException("Cannot convert " + value + " to "
+                + to.getSimpleName() + " without loss.");
+    }
+
+}
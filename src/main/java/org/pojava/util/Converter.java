@@ -0,0 +1,29 @@
+package org.pojava.util;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+/**
+ * A Converter translates a non-null value of one class into an equivalent value of another.
+ * Converters are registered with, and resolved by, a ConversionService.
+ *
+ * @author John Pile
+ */
+public interface Converter {
+
+    Object convert(Object value);
+
+}
@@ -0,0 +1,383 @@
+package org.pojava.util;
+
+/*
+ Copyright 2008-09 John Pile
+
+ Licensed under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License.
+ You may obtain a copy of the License at
+
+ http://www.apache.org/licenses/LICENSE-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS,
+ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ See the License for the specific language governing permissions and
+ limitations under the License.
+ */
+
+import org.pojava.datetime.DateTime;
+import org.pojava.exception.InconceivableException;
+import org.pojava.exception.ReflectionException;
+import org.pojava.lang.PropertyLayout;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * A fingerprint is a digest of the content of a bean graph, suitable as a cache key. Beans are
+ * walked through their getters, in property name order, and each value is fed directly into an
+ * incremental hash, so nothing is serialized along the way.
+ * <p/>
+ * Lists and arrays contribute in order. Each element of a Set, and each entry of a Map, is
+ * digested separately with the same algorithm as the whole, and the sorted digests contribute
+ * in place of the elements, so equal content yields an equal fingerprint regardless of
+ * iteration order. One sub-digest serves every member of a collection, reset between them. A
+ * bean, array or collection reached a second time along the same path contributes only a
+ * back-reference, so cyclic graphs terminate.
+ *
+ * @author John Pile
+ */
+public class FingerprintTool {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte NULL = 0, BOOLEAN = 1, CHAR = 2, INTEGRAL = 3, FLOATING = 4,
+            NUMBER = 5, STRING = 6, ENUM = 7, DATE = 8, ARRAY = 9, LIST = 10, SET = 11, MAP = 12,
+            BEAN = 13, CYCLE = 14, NANO_DATE = 15;
+
+    /**
+     * Orders digests as unsigned bytes.
+     */
+    private static final Comparator<byte[]> DIGEST_ORDER = new Comparator<byte[]>() {
+        public int compare(byte[] a, byte[] b) {
+            int len = Math.min(a.length, b.length);
+            for (int i = 0; i < len; i++) {
+                int diff = (a[i] & 0xff) - (b[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return a.length - b.length;
+        }
+    };
+
+    /**
+     * Fingerprint a bean graph using a cryptographic digest.
+     *
+     * @param bean root of bean graph
+     * @param alg  digest algorithm
+     * @return digest of the bean graph's content
+     */
+    public static byte[] fingerprint(Object bean, HashingAlgorithm alg) {
+        try {
+            DigestSink sink = new DigestSink(MessageDigest.getInstance(alg.toString().replace(
+                    '_', '-')));
+            walk(bean, sink, new ArrayList<Object>());
+            return sink.digest.digest();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new InconceivableException("Unsupported algorithm [" + alg.toString() + "].",
+                    ex);
+        }
+    }
+
+    /**
+     * Fingerprint a bean graph as hex text using a cryptographic digest.
+     *
+     * @param bean root of bean graph
+     * @param alg  digest algorithm
+     * @return hex encoded digest of the bean graph's content
+     */
+    public static String fingerprintHex(Object bean, HashingAlgorithm alg) {
+        return EncodingTool.hexEncode(fingerprint(bean, alg));
+    }
+
+    /**
+     * Fingerprint a bean graph using the fast, non-cryptographic 64-bit FNV-1a hash. This is
+     * well-distributed, but offers no resistance to deliberately crafted collisions.
+     *
+     * @param bean root of bean graph
+     * @return 64-bit hash of the bean graph's content
+     */
+    public static long fingerprint64(Object bean) {
+        FnvSink sink = new FnvSink();
+        walk(bean, sink, new ArrayList<Object>());
+        return sink.hash;
+    }
+
+    private static void walk(Object value, Sink sink, List<Object> path) {
+        if (value == null) {
+            sink.update(NULL);
+            return;
+        }
+        if (value instanceof String) {
+            sink.update(STRING);
+            sink.update((String) value);
+        } else if (value instanceof Boolean) {
+            sink.update(BOOLEAN);
+            sink.update(((Boolean) value) ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Character) {
+            sink.update(CHAR);
+            sink.update((long) (Character) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            sink.update(INTEGRAL);
+            sink.update(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            sink.update(FLOATING);
+            sink.update(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Number) {
+            sink.update(NUMBER);
+            sink.update(value.toString());
+        } else if (value instanceof Enum<?>) {
+            sink.update(ENUM);
+            sink.update(((Enum<?>) value).getDeclaringClass().getName());
+            sink.update(((Enum<?>) value).name());
+        } else if (value instanceof DateTime) {
+            // A DateTime and a Timestamp carry nanoseconds, so they differ in length from a Date.
+            sink.update(NANO_DATE);
+            sink.update(((DateTime) value).toMillis());
+            sink.update((long) ((DateTime) value).getNanos());
+        } else if (value instanceof Timestamp) {
+            sink.update(NANO_DATE);
+            sink.update(((Timestamp) value).getTime());
+            sink.update((long) ((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            sink.update(DATE);
+            sink.update(((Date) value).getTime());
+        } else {
+            walkGraph(value, sink, path);
+        }
+    }
+
+    /**
+     * Walk an array, collection or bean, unless it already lies on the path from the root.
+     */
+    private static void walkGraph(Object value, Sink sink, List<Object> path) {
+        for (int i = 0; i < path.size(); i++) {
+            if (path.get(i) == value) {
+                sink.update(CYCLE);
+                sink.update((long) i);
+                return;
+            }
+        }
+        path.add(value);
+        if (value.getClass().isArray()) {
+            walkArray(value, sink, path);
+        } else if (value instanceof List<?>) {
+            List<?> list = (List<?>) value;
+            sink.update(LIST);
+            sink.update((long) list.size());
+            for (Object element : list) {
+                walk(element, sink, path);
+            }
+        } else if (value instanceof Set<?>) {
+            Set<?> set = (Set<?>) value;
+            byte[][] digests = new byte[set.size()][];
+            int i = 0;
+            Sink sub = sink.fork();
+            for (Object element : set) {
+                walk(element, sub, path);
+                digests[i++] = sub.finish();
+            }
+            sink.update(SET);
+            update(sink, digests);
+        } else if (value instanceof Map<?, ?>) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            byte[][] digests = new byte[map.size()][];
+            int i = 0;
+            Sink sub = sink.fork();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                walk(entry.getKey(), sub, path);
+                walk(entry.getValue(), sub, path);
+                digests[i++] = sub.finish();
+            }
+            sink.update(MAP);
+            update(sink, digests);
+        } else if (value instanceof Collection<?>) {
+            Collection<?> collection = (Collection<?>) value;
+            sink.update(LIST);
+            sink.update((long) collection.size());
+            for (Object element : collection) {
+                walk(element, sink, path);
+            }
+        } else {
+            walkBean(value, sink, path);
+        }
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Feed the digests of an unordered collection's members, sorted so that iteration order
+     * does not matter.
+     */
+    private static void update(Sink sink, byte[][] digests) {
+        Arrays.sort(digests, DIGEST_ORDER);
+        sink.update((long) digests.length);
+        for (byte[] digest : digests) {
+            sink.update(digest);
+        }
+    }
+
+    private static void walkArray(Object array, Sink sink, List<Object> path) {
+        int len = Array.getLength(array);
+        sink.update(ARRAY);
+        sink.update((long) len);
+        if (array instanceof Object[]) {
+            for (Object element : (Object[]) array) {
+                walk(element, sink, path);
+            }
+        } else if (array instanceof byte[]) {
+            for (byte b : (byte[]) array) {
+                sink.update(b);
+            }
+        } else if (array instanceof int[]) {
+            for (int i : (int[]) array) {
+                sink.update((long) i);
+            }
+        } else if (array instanceof long[]) {
+            for (long l : (long[]) array) {
+                sink.update(l);
+            }
+        } else if (array instanceof char[]) {
+            for (char c : (char[]) array) {
+                sink.update((long) c);
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                walk(Array.get(array, i), sink, path);
+            }
+        }
+    }
+
+    private static void walkBean(Object bean, Sink sink, List<Object> path) {
+        PropertyLayout layout = ReflectionTool.propertyLayout(bean.getClass(), true);
+        sink.update(BEAN);
+        sink.update(bean.getClass().getName());
+        Method getter = null;
+        try {
+            for (int i = 0; i < layout.size(); i++) {
+                getter = layout.getGetter(i);
+                walk(getter.invoke(bean, (Object[]) null), sink, path);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getter.getName() + ".", ex);
+        } catch (InvocationTargetException ex) {
+            throw new ReflectionException("Failed to invoke getter " + getter.getName() + ".", ex);
+        }
+    }
+
+    /**
+     * Receives the byte stream of a walk.
+     */
+    private abstract static class Sink {
+
+        abstract void update(byte b);
+
+        /**
+         * A new, empty sink hashing with the same algorithm.
+         */
+        abstract Sink fork();
+
+        /**
+         * The hash of everything received since the last finish, after which the sink starts
+         * afresh.
+         */
+        abstract byte[] finish();
+
+        void update(byte[] bytes) {
+            for (byte b : bytes) {
+                update(b);
+            }
+        }
+
+        void update(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                update((byte) (value >>> shift));
+            }
+        }
+
+        void update(String str) {
+            int len = str.length();
+            update((long) len);
+            for (int i = 0; i < len; i++) {
+                char c = str.charAt(i);
+                update((byte) (c >>> 8));
+                update((byte) c);
+            }
+        }
+    }
+
+    private static class DigestSink extends Sink {
+
+        private final MessageDigest digest;
+        private final byte[] scratch = new byte[8];
+
+        DigestSink(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        void update(byte b) {
+            digest.update(b);
+        }
+
+        Sink fork() {
+            try {
+                return new DigestSink(MessageDigest.getInstance(digest.getAlgorithm()));
+            } catch (NoSuchAlgorithmException ex) {
+                throw new InconceivableException("Unsupported algorithm ["
+                        + digest.getAlgorithm() + "].", ex);
+            }
+        }
+
+        byte[] finish() {
+            return digest.digest();
+        }
+
+        @Override
+        void update(byte[] bytes) {
+            digest.update(bytes);
+        }
+
+        @Override
+        void update(long value) {
+            for (int i = 7; i >= 0; i--) {
+                scratch[i] = (byte) value;
+                value >>>= 8;
+            }
+            digest.update(scratch, 0, 8);
+        }
+    }
+
+    private static class FnvSink extends Sink {
+
+        private long hash = FNV_OFFSET;
+
+        void update(byte b) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+
+        Sink fork() {
+            return new FnvSink();
+        }
+
+        byte[] finish() {
+            byte[] bytes = new byte[8];
+            long value = hash;
+            hash = FNV_OFFSET;
+            for (int i = 7; i >= 0; i--) {
+                bytes[i] = (byte) value;
+                value >>>= 8;
+            }
+            return bytes;
+        }
+    }
+
+}
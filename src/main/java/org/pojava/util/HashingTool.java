@@ -115,4 +115,21 @@ public class HashingTool {
         return hash;
     }
 
+    /**
+     * Scramble a 32-bit hash so that every bit of the input affects every bit of the result,
+     * using the finalizer of MurmurHash3. This makes a weak hashCode, such as that of a small
+     * Integer, safe for spreading across buckets by its low bits. Unlike oatHash, it needs no
+     * byte array.
+     *
+     * @return A well-distributed 32-bit hash of any int.
+     */
+    public static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
 }
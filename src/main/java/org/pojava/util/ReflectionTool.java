@@ -18,11 +18,13 @@ package org.pojava.util;
 
 import org.pojava.exception.ReflectionException;
 import org.pojava.lang.Accessors;
+import org.pojava.lang.PropertyLayout;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The ReflectionTool class provides static methods for accessing an object's properties.
@@ -31,6 +33,9 @@ import java.util.*;
  */
 public class ReflectionTool {
 
+    private static final Map<Class<?>, PropertyLayout> layouts = new ConcurrentHashMap<Class<?>, PropertyLayout>();
+    private static final Map<Class<?>, PropertyLayout> readableLayouts = new ConcurrentHashMap<Class<?>, PropertyLayout>();
+
     /**
      * Returns true if class derives from Collection
      *
@@ -65,6 +70,61 @@ public class ReflectionTool {
                 || propClass == Byte.class || propClass == Character.class;
     }
 
+    /**
+     * Return the wrapper class of a primitive type, or the type itself if not primitive.
+     *
+     * @param type Class to wrap.
+     * @return Object equivalent of a primitive type.
+     */
+    public static Class<?> wrapperFor(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return Void.class;
+    }
+
+    /**
+     * A class followed by its superclasses, then by its interfaces in breadth-first order. This is
+     * the order in which ConversionService and AdaptorRegistry look for a match to a source class.
+     *
+     * @param type class whose hierarchy is listed
+     * @return the class, its superclasses and its interfaces, ending with Object
+     */
+    public static List<Class<?>> hierarchy(Class<?> type) {
+        List<Class<?>> list = new ArrayList<Class<?>>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            list.add(c);
+        }
+        for (int i = 0; i < list.size(); i++) {
+            for (Class<?> iface : list.get(i).getInterfaces()) {
+                if (!list.contains(iface)) {
+                    list.add(iface);
+                }
+            }
+        }
+        // Object belongs after every interface.
+        list.remove(Object.class);
+        list.add(Object.class);
+        return list;
+    }
+
     /**
      * Make content safe for XML or URI by encoding illegal characters.
      *
@@ -104,7 +164,8 @@ public class ReflectionTool {
     }
 
     /**
-     * Drill down to a nested property and set its value
+     * Drill down to a nested property and set its value, converting it to the property's type
+     * through the default ConversionService where necessary.
      */
     public static void setNestedValue(String path, Object parent, Object child)
             throws NoSuchMethodException, IllegalAccessException, InstantiationException {
@@ -195,7 +256,7 @@ public class ReflectionTool {
                     throw ex;
                 }
             }
-            params[0] = child;
+            params[0] = ConversionService.getDefault().convert(child, propClass);
             method.invoke(innerObject, params);
         } catch (InvocationTargetException ex) {
             throw new ReflectionException(ex.getMessage(), ex);
@@ -203,7 +264,8 @@ public class ReflectionTool {
     }
 
     /**
-     * Drill down to a nested property and set its value
+     * Drill down to a nested property and set its value, converting it to the property's type
+     * through the default ConversionService where necessary.
      */
     public static void setNestedValue(Method[] getters, Method[] setters, Object parent,
                                       Object value) throws IllegalAccessException, InstantiationException {
@@ -224,8 +286,10 @@ public class ReflectionTool {
                 }
                 innerObject = tempObject;
             }
-            params[0] = value;
-            setters[setters.length - 1].invoke(innerObject, params);
+            Method setter = setters[setters.length - 1];
+            params[0] = ConversionService.getDefault().convert(value,
+                    setter.getParameterTypes()[0]);
+            setter.invoke(innerObject, params);
         } catch (InvocationTargetException ex) {
             throw new ReflectionException(ex.getMessage(), ex);
         } catch (IllegalArgumentException ex) {
@@ -338,7 +402,7 @@ public class ReflectionTool {
     public static Accessors accessors(Class<?> type, Set<String> getterProperties,
                                       Set<String> setterProperties) {
         Method[] allMethods = type.getMethods();
-        Accessors accessors = new Accessors();
+        Accessors accessors = new Accessors(type);
         Map<String, Method> getters = accessors.getGetters();
         Map<String, Method> setters = accessors.getSetters();
         for (Method meth : allMethods) {
@@ -352,6 +416,51 @@ public class ReflectionTool {
         return accessors;
     }
 
+    /**
+     * Return the layout of a class's read/write properties, ordered by name. Layouts are
+     * resolved once per class and shared thereafter.
+     *
+     * @param type class whose properties are laid out
+     * @return cached layout of properties having both a getter and a setter
+     */
+    public static PropertyLayout propertyLayout(Class<?> type) {
+        PropertyLayout layout = layouts.get(type);
+        if (layout == null) {
+            layout = new PropertyLayout(accessors(type));
+            layouts.put(type, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Return the layout of a class's properties, ordered by name, optionally including those
+     * that can be read but not written. Layouts are resolved once per class and shared
+     * thereafter.
+     *
+     * @param type     class whose properties are laid out
+     * @param readOnly true to include properties lacking a setter, which hold a null setter
+     * @return cached layout of the class's properties
+     */
+    public static PropertyLayout propertyLayout(Class<?> type, boolean readOnly) {
+        if (!readOnly) {
+            return propertyLayout(type);
+        }
+        PropertyLayout layout = readableLayouts.get(type);
+        if (layout == null) {
+            Accessors accessors = accessors(type);
+            List<String> names = new ArrayList<String>();
+            for (Map.Entry<String, Method> entry : accessors.getGetters().entrySet()) {
+                if (entry.getValue().getParameterTypes().length == 0) {
+                    names.add(entry.getKey());
+                }
+            }
+            Collections.sort(names);
+            layout = new PropertyLayout(accessors, names.toArray(new String[names.size()]));
+            readableLayouts.put(type, layout);
+        }
+        return layout;
+    }
+
     /**
      * Array of getter methods that drill down to a nested bean property
      *
@@ -509,7 +618,8 @@ public class ReflectionTool {
 
     /**
      * Invoke any setters of an object whose properties are referenced in a map, passing the
-     * values of that map into their respective setters.
+     * values of that map into their respective setters. Values not matching a setter's
+     * parameter type are converted by the default ConversionService.
      *
      * @param obj Object to mutate
      * @param properties Property values to populate into obj
@@ -523,11 +633,45 @@ public class ReflectionTool {
         if (obj == null || setters == null || setters.isEmpty()) {
             return;
         }
+        ConversionService conversions = ConversionService.getDefault();
+        Object[] args = new Object[1];
         for (Map.Entry<String, Method> stringMethodEntry : setters.entrySet()) {
             Method setter = stringMethodEntry.getValue();
             String prop = propertyFor(setter);
-            if (properties.containsKey(prop)) {
-                Object[] args = { properties.get(prop) };
+            Object value = properties.get(prop);
+            if (value != null || properties.containsKey(prop)) {
+                args[0] = conversions.convert(value, setter.getParameterTypes()[0]);
+                setter.invoke(obj, args);
+            }
+        }
+    }
+
+    /**
+     * Invoke the setter of each property in a layout whose value is referenced in a map,
+     * converting values by the default ConversionService where necessary. The layout holds
+     * each property's type, so populating many objects of a class reflects on nothing per
+     * value.
+     *
+     * @param obj Object to mutate
+     * @param properties Property values to populate into obj
+     * @param layout Layout of obj's class
+     * @throws IllegalAccessException
+     * @throws java.lang.reflect.InvocationTargetException
+     */
+    public static void populateFromMap(Object obj, Map<String, Object> properties,
+                                       PropertyLayout layout) throws IllegalAccessException,
+            InvocationTargetException {
+        if (obj == null) {
+            return;
+        }
+        ConversionService conversions = ConversionService.getDefault();
+        Object[] args = new Object[1];
+        for (int i = 0; i < layout.size(); i++) {
+            Method setter = layout.getSetter(i);
+            String prop = layout.getName(i);
+            Object value = properties.get(prop);
+            if (setter != null && (value != null || properties.containsKey(prop))) {
+                args[0] = conversions.convert(value, layout.getPropertyType(i));
                 setter.invoke(obj, args);
             }
         }
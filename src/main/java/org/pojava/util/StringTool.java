@@ -137,6 +137,67 @@ public class StringTool {
         return isNeg ? -parsed : parsed;
     }
 
+    /**
+     * Parse a long from a string matching /^\s*[-+]?[0-9]+\s*$/ without trimming or copying
+     * the string.
+     *
+     * @param str string to parse
+     * @return parsed value
+     * @throws NumberFormatException if the string is not an integer or overflows a long
+     */
+    public static long parseLong(String str) {
+        if (str == null) {
+            throw new NumberFormatException("null");
+        }
+        int end = str.length();
+        int i = 0;
+        while (i < end && str.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        boolean isNeg = false;
+        if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+            isNeg = str.charAt(i++) == '-';
+        }
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + str + "\"");
+        }
+        // Accumulate negatively, as Long.MIN_VALUE has no positive counterpart.
+        long parsed = 0;
+        for (; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9' || parsed < (Long.MIN_VALUE + (c - '0')) / 10) {
+                throw new NumberFormatException("For input string: \"" + str + "\"");
+            }
+            parsed = 10 * parsed - (c - '0');
+        }
+        if (!isNeg) {
+            if (parsed == Long.MIN_VALUE) {
+                throw new NumberFormatException("For input string: \"" + str + "\"");
+            }
+            parsed = -parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * Parse an int from a string matching /^\s*[-+]?[0-9]+\s*$/ without trimming or copying
+     * the string.
+     *
+     * @param str string to parse
+     * @return parsed value
+     * @throws NumberFormatException if the string is not an integer or overflows an int
+     */
+    public static int parseInt(String str) {
+        long parsed = parseLong(str);
+        if (parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + str + "\"");
+        }
+        return (int) parsed;
+    }
+
     /**
      * Capitalize the first character of a String.
      *
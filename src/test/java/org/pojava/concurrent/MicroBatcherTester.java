@@ -0,0 +1,174 @@
+package org.pojava.concurrent;
+
+import junit.framework.TestCase;
+import org.pojava.lang.BatchProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class MicroBatcherTester extends TestCase {
+
+    /**
+     * Records the size of each batch and every item received.
+     */
+    private static class Recorder implements BatchProcessor<Integer> {
+
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> items = Collections.synchronizedList(new ArrayList<Integer>());
+
+        public int process(List<Integer> batch) {
+            sizes.add(batch.size());
+            items.addAll(batch);
+            return batch.size();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.MicroBatcher");
+
+    private Level level;
+
+    @Override
+    public void setUp() {
+        // Failures are expected here; keep their stack traces out of the test log.
+        level = LOGGER.getLevel();
+        LOGGER.setLevel(Level.OFF);
+    }
+
+    @Override
+    public void tearDown() {
+        LOGGER.setLevel(level);
+    }
+
+    public void testBySize() throws Exception {
+        Recorder recorder = new Recorder();
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(recorder, 10, 1,
+                TimeUnit.MINUTES, 100);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(1, batcher.process(i));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.items.size() < 30 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Integer.valueOf(10), recorder.sizes.get(0));
+        batcher.close();
+        assertEquals(30, batcher.getTotal());
+        assertEquals(3, batcher.getBatches());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(Integer.valueOf(i), recorder.items.get(i));
+        }
+        assertEquals(0, batcher.process(30));
+    }
+
+    public void testByLatency() throws Exception {
+        Recorder recorder = new Recorder();
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(recorder, 1000, 20,
+                TimeUnit.MILLISECONDS, 100);
+        batcher.process(1);
+        batcher.process(2);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.items.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, recorder.items.size());
+        batcher.close();
+    }
+
+    public void testBackpressure() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        BatchProcessor<Integer> stalled = new BatchProcessor<Integer>() {
+            public int process(List<Integer> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return batch.size();
+            }
+        };
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(stalled, 1, 1,
+                TimeUnit.MILLISECONDS, 2);
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (batcher.offer(i, 20, TimeUnit.MILLISECONDS)) {
+                accepted++;
+            }
+        }
+        // One item is held by the stalled batch and two fill the buffer.
+        assertEquals(3, accepted);
+        release.countDown();
+        batcher.close();
+        assertEquals(3, batcher.getTotal());
+    }
+
+    public void testFailure() throws Exception {
+        BatchProcessor<Integer> failing = new BatchProcessor<Integer>() {
+            public int process(List<Integer> batch) {
+                if (batch.contains(3)) {
+                    throw new IllegalStateException("Three is not allowed.");
+                }
+                return batch.size();
+            }
+        };
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(failing, 2, 1,
+                TimeUnit.MINUTES, 10);
+        for (int i = 0; i < 6; i++) {
+            batcher.process(i);
+        }
+        batcher.close();
+        assertEquals(1, batcher.getFailed());
+        assertEquals(4, batcher.getTotal());
+    }
+
+    public void testError() throws Exception {
+        BatchProcessor<Integer> fatal = new BatchProcessor<Integer>() {
+            public int process(List<Integer> batch) {
+                if (batch.contains(0)) {
+                    throw new AssertionError("Zero is fatal.");
+                }
+                return batch.size();
+            }
+        };
+        MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(fatal, 1, 1,
+                TimeUnit.MINUTES, 1);
+        // The flusher survives the Error, so producers never block on a full buffer.
+        for (int i = 0; i < 10; i++) {
+            assertTrue(batcher.offer(i, 5, TimeUnit.SECONDS));
+        }
+        batcher.close();
+        assertEquals(1, batcher.getFailed());
+        assertEquals(9, batcher.getTotal());
+    }
+
+    public void testCloseWhileOffering() throws Exception {
+        Recorder recorder = new Recorder();
+        final MicroBatcher<Integer> batcher = new MicroBatcher<Integer>(recorder, 8, 1,
+                TimeUnit.MILLISECONDS, 4);
+        final AtomicLong accepted = new AtomicLong();
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; batcher.process(i) == 1; i++) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        Thread.sleep(20);
+        batcher.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        // Every item whose offer succeeded reached the batch processor.
+        assertEquals(accepted.get(), batcher.getTotal());
+        assertEquals(accepted.get(), recorder.items.size());
+    }
+}
@@ -0,0 +1,64 @@
+package org.pojava.concurrent;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class MpscRingQueueTester extends TestCase {
+
+    public void testBounds() {
+        MpscRingQueue<String> queue = new MpscRingQueue<String>(3);
+        assertEquals(4, queue.capacity());
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer("s" + i));
+        }
+        assertFalse(queue.offer("s4"));
+        assertEquals(4, queue.size());
+        assertEquals("s0", queue.poll());
+        assertTrue(queue.offer("s4"));
+        assertEquals("s1", queue.poll());
+        assertEquals("s2", queue.poll());
+        assertEquals("s3", queue.poll());
+        assertEquals("s4", queue.poll());
+        assertNull(queue.poll());
+    }
+
+    public void testProducers() throws Exception {
+        final MpscRingQueue<Integer> queue = new MpscRingQueue<Integer>(64);
+        final int perThread = 20000;
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int base = t * perThread;
+            producers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        while (!queue.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        int[] last = new int[producers.length];
+        Arrays.fill(last, -1);
+        int received = 0;
+        while (received < producers.length * perThread) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = value / perThread;
+            // Each producer's elements arrive in the order offered.
+            assertTrue(value % perThread > last[producer]);
+            last[producer] = value % perThread;
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,171 @@
+package org.pojava.concurrent;
+
+import junit.framework.TestCase;
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PartitionedExecutorTester extends TestCase {
+
+    private static final PartitionedExecutor.KeyExtractor<int[]> CUSTOMER = new PartitionedExecutor.KeyExtractor<int[]>() {
+        public Object keyOf(int[] item) {
+            return item[0];
+        }
+    };
+
+    /**
+     * Records, per customer, the sequence numbers in the order they were processed.
+     */
+    private static class Recorder implements Processor<int[]> {
+
+        final List<List<Integer>> seen = new ArrayList<List<Integer>>();
+
+        Recorder(int customers) {
+            for (int i = 0; i < customers; i++) {
+                seen.add(Collections.synchronizedList(new ArrayList<Integer>()));
+            }
+        }
+
+        public int process(int[] item) {
+            seen.get(item[0]).add(item[1]);
+            return 1;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.PartitionedExecutor");
+
+    private Level level;
+
+    @Override
+    public void setUp() {
+        // Failures are expected here; keep their stack traces out of the test log.
+        level = LOGGER.getLevel();
+        LOGGER.setLevel(Level.OFF);
+    }
+
+    @Override
+    public void tearDown() {
+        LOGGER.setLevel(level);
+    }
+
+    public void testOrderPerKey() throws Exception {
+        final int customers = 50;
+        final int perCustomer = 400;
+        Recorder recorder = new Recorder(customers);
+        final PartitionedExecutor<int[]> executor = new PartitionedExecutor<int[]>(recorder,
+                CUSTOMER, 4, 64);
+        // Two producers each submit alternate customers, in sequence order per customer.
+        Thread[] producers = new Thread[2];
+        for (int t = 0; t < producers.length; t++) {
+            final int offset = t;
+            producers[t] = new Thread() {
+                public void run() {
+                    for (int seq = 0; seq < perCustomer; seq++) {
+                        for (int c = offset; c < customers; c += 2) {
+                            executor.submit(new int[]{c, seq});
+                        }
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        executor.close();
+        assertEquals(customers * perCustomer, executor.getTotal());
+        for (List<Integer> sequence : recorder.seen) {
+            assertEquals(perCustomer, sequence.size());
+            for (int seq = 0; seq < perCustomer; seq++) {
+                assertEquals(Integer.valueOf(seq), sequence.get(seq));
+            }
+        }
+        assertFalse(executor.submit(new int[]{0, perCustomer}));
+    }
+
+    public void testLanes() throws Exception {
+        PartitionedExecutor<int[]> executor = new PartitionedExecutor<int[]>(new Recorder(0),
+                CUSTOMER, 3, 8);
+        assertEquals(3, executor.getLaneCount());
+        assertEquals(executor.laneOf("abc"), executor.laneOf("abc"));
+        boolean[] used = new boolean[3];
+        for (int key = 0; key < 100; key++) {
+            int lane = executor.laneOf(key);
+            assertTrue(lane >= 0 && lane < 3);
+            used[lane] = true;
+        }
+        assertTrue(used[0] && used[1] && used[2]);
+        assertTrue(executor.laneOf(null) >= 0);
+        executor.close();
+    }
+
+    public void testFailure() throws Exception {
+        Processor<int[]> picky = new Processor<int[]>() {
+            public int process(int[] item) {
+                if (item[1] == 2) {
+                    throw new IllegalArgumentException("Sequence 2 is rejected.");
+                }
+                return 1;
+            }
+        };
+        PartitionedExecutor<int[]> executor = new PartitionedExecutor<int[]>(picky, CUSTOMER, 2,
+                16);
+        for (int seq = 0; seq < 5; seq++) {
+            assertTrue(executor.submit(new int[]{7, seq}));
+        }
+        executor.close();
+        assertEquals(5, executor.getProcessed());
+        assertEquals(1, executor.getFailed());
+        assertEquals(4, executor.getTotal());
+    }
+
+    public void testError() throws Exception {
+        Processor<int[]> fatal = new Processor<int[]>() {
+            public int process(int[] item) {
+                if (item[1] == 0) {
+                    throw new AssertionError("Sequence 0 is fatal.");
+                }
+                return 1;
+            }
+        };
+        PartitionedExecutor<int[]> executor = new PartitionedExecutor<int[]>(fatal, CUSTOMER, 1,
+                2);
+        // The lane survives the Error, so later items are still processed.
+        for (int seq = 0; seq < 10; seq++) {
+            assertTrue(executor.submit(new int[]{1, seq}));
+        }
+        executor.close();
+        assertEquals(1, executor.getFailed());
+        assertEquals(9, executor.getTotal());
+    }
+
+    public void testCloseWhileSubmitting() throws Exception {
+        final PartitionedExecutor<int[]> executor = new PartitionedExecutor<int[]>(
+                new Recorder(4), CUSTOMER, 2, 4);
+        final AtomicLong accepted = new AtomicLong();
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int customer = t;
+            producers[t] = new Thread() {
+                public void run() {
+                    for (int seq = 0; executor.submit(new int[]{customer, seq}); seq++) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        Thread.sleep(20);
+        executor.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        // Every item whose submit returned true was processed.
+        assertEquals(accepted.get(), executor.getProcessed());
+    }
+}
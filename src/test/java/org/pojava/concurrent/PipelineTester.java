@@ -0,0 +1,225 @@
+package org.pojava.concurrent;
+
+import junit.framework.TestCase;
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PipelineTester extends TestCase {
+
+    /**
+     * An item mutated by each stage in turn.
+     */
+    private static class Record {
+
+        final int id;
+        int value;
+
+        Record(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final Processor<Record> PARSE = new Processor<Record>() {
+        public int process(Record obj) {
+            obj.value = obj.id;
+            return 1;
+        }
+    };
+
+    private static final Processor<Record> DOUBLE = new Processor<Record>() {
+        public int process(Record obj) {
+            obj.value *= 2;
+            return 1;
+        }
+    };
+
+    private static final Logger LOGGER = Logger.getLogger("org.pojava.concurrent.Pipeline");
+
+    private Level level;
+
+    @Override
+    public void setUp() {
+        // Failures are expected here; keep their stack traces out of the test log.
+        level = LOGGER.getLevel();
+        LOGGER.setLevel(Level.OFF);
+    }
+
+    @Override
+    public void tearDown() {
+        LOGGER.setLevel(level);
+    }
+
+    public void testOrderedStages() throws Exception {
+        final List<Integer> persisted = new ArrayList<Integer>();
+        Processor<Record> persist = new Processor<Record>() {
+            public int process(Record obj) {
+                persisted.add(obj.value);
+                return 1;
+            }
+        };
+        Pipeline<Record> pipeline = new Pipeline<Record>(WaitStrategy.YIELD, 16).stage("parse",
+                PARSE).stage("double", DOUBLE).stage("persist", persist).start();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(pipeline.submit(new Record(i)));
+        }
+        pipeline.close();
+        assertEquals(10000, persisted.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(Integer.valueOf(i * 2), persisted.get(i));
+        }
+        assertEquals(3, pipeline.getStageCount());
+        assertEquals("double", pipeline.getStageName(1));
+        assertEquals(10000, pipeline.getProcessed(2));
+        assertEquals(0, pipeline.getDepth(2));
+        assertFalse(pipeline.submit(new Record(0)));
+    }
+
+    public void testParallelStage() throws Exception {
+        final AtomicLong sum = new AtomicLong();
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        Processor<Record> persist = new Processor<Record>() {
+            public int process(Record obj) {
+                sum.addAndGet(obj.value);
+                seen.add(obj.id);
+                return 1;
+            }
+        };
+        for (WaitStrategy wait : WaitStrategy.values()) {
+            sum.set(0);
+            seen.clear();
+            Pipeline<Record> pipeline = new Pipeline<Record>(wait, 8).stage("parse", PARSE, 2)
+                    .stage("double", DOUBLE, 3).stage("persist", persist, 2).start();
+            for (int i = 1; i <= 1000; i++) {
+                pipeline.submit(new Record(i));
+            }
+            pipeline.close();
+            assertEquals(wait.name(), 1001000, sum.get());
+            assertEquals(1000, seen.size());
+            assertEquals(1000, pipeline.getTotal(1));
+        }
+    }
+
+    public void testFailure() throws Exception {
+        Processor<Record> picky = new Processor<Record>() {
+            public int process(Record obj) {
+                if (obj.id % 10 == 0) {
+                    throw new IllegalArgumentException("Multiples of ten are rejected.");
+                }
+                return 1;
+            }
+        };
+        Pipeline<Record> pipeline = new Pipeline<Record>(WaitStrategy.PARK, 4).stage("check",
+                picky).stage("double", DOUBLE).start();
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(new Record(i));
+        }
+        pipeline.close();
+        assertEquals(100, pipeline.getProcessed(0));
+        assertEquals(10, pipeline.getFailed(0));
+        assertEquals(90, pipeline.getProcessed(1));
+    }
+
+    public void testError() throws Exception {
+        Processor<Record> fatal = new Processor<Record>() {
+            public int process(Record obj) {
+                if (obj.id == 3) {
+                    throw new AssertionError("Record 3 is fatal.");
+                }
+                return 1;
+            }
+        };
+        Pipeline<Record> pipeline = new Pipeline<Record>(WaitStrategy.YIELD, 2).stage("check",
+                fatal).stage("double", DOUBLE).start();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(pipeline.submit(new Record(i)));
+        }
+        // The stage survives the Error, so close() completes and later items flow on.
+        pipeline.close();
+        assertEquals(1, pipeline.getFailed(0));
+        assertTrue(pipeline.getFirstFailure(0) instanceof AssertionError);
+        assertNull(pipeline.getFirstFailure(1));
+        assertEquals(19, pipeline.getProcessed(1));
+    }
+
+    public void testCloseWhileSubmitting() throws Exception {
+        final StripedCounter persisted = new StripedCounter();
+        Processor<Record> persist = new Processor<Record>() {
+            public int process(Record obj) {
+                persisted.increment();
+                return 1;
+            }
+        };
+        final Pipeline<Record> pipeline = new Pipeline<Record>(WaitStrategy.YIELD, 2).stage(
+                "double", DOUBLE, 2).stage("persist", persist).start();
+        final AtomicLong accepted = new AtomicLong();
+        Thread producer = new Thread() {
+            public void run() {
+                for (int i = 0; pipeline.submit(new Record(i)); i++) {
+                    accepted.incrementAndGet();
+                }
+            }
+        };
+        producer.start();
+        Thread.sleep(20);
+        pipeline.close();
+        producer.join();
+        // Every item whose submit returned true reached the last stage.
+        assertEquals(accepted.get(), persisted.sum());
+    }
+
+    public void testSpscRing() throws Exception {
+        final SpscRingQueue<Integer> ring = new SpscRingQueue<Integer>(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertTrue(ring.offer(4));
+        assertEquals(4, ring.size());
+        Thread producer = new Thread() {
+            public void run() {
+                for (int i = 5; i < 100000; i++) {
+                    while (!ring.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        producer.start();
+        for (int expected = 1; expected < 100000; expected++) {
+            Integer value;
+            while ((value = ring.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(expected, value.intValue());
+        }
+        producer.join();
+        assertTrue(ring.isEmpty());
+    }
+
+    public void testNotStarted() throws Exception {
+        Pipeline<Record> pipeline = new Pipeline<Record>(WaitStrategy.SPIN, 4);
+        try {
+            pipeline.start();
+            fail("Expecting IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            assertEquals("A pipeline needs at least one stage.", ex.getMessage());
+        }
+        pipeline.stage("only", PARSE);
+        try {
+            pipeline.submit(new Record(1));
+            fail("Expecting IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            assertEquals("Pipeline not started.", ex.getMessage());
+        }
+        pipeline.start();
+        pipeline.close();
+    }
+}
@@ -0,0 +1,168 @@
+package org.pojava.concurrent;
+
+import junit.framework.TestCase;
+import org.pojava.lang.Processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessorExecutorTester extends TestCase {
+
+    private static final Processor<Integer> IDENTITY = new Processor<Integer>() {
+        public int process(Integer obj) {
+            return obj;
+        }
+    };
+
+    private ProcessorExecutor executor;
+
+    @Override
+    public void setUp() {
+        executor = new ProcessorExecutor(4);
+    }
+
+    @Override
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    public void testList() throws Exception {
+        List<Integer> items = new ArrayList<Integer>();
+        for (int i = 1; i <= 100000; i++) {
+            items.add(i % 10);
+        }
+        assertEquals(450000, executor.process(IDENTITY, items));
+        assertEquals(0, executor.process(IDENTITY, new ArrayList<Integer>()));
+    }
+
+    public void testIterable() throws Exception {
+        List<Integer> items = new LinkedList<Integer>();
+        for (int i = 1; i <= 1000; i++) {
+            items.add(i);
+        }
+        assertEquals(500500, executor.process(IDENTITY, items));
+    }
+
+    public void testFailures() throws Exception {
+        Processor<Integer> picky = new Processor<Integer>() {
+            public int process(Integer obj) {
+                if (obj % 100 == 0) {
+                    throw new IllegalArgumentException("No multiples of 100.");
+                }
+                return 1;
+            }
+        };
+        List<Integer> items = new ArrayList<Integer>();
+        for (int i = 1; i <= 1000; i++) {
+            items.add(i);
+        }
+        ProcessorExecutor.Run<Integer> run = executor.submit(picky, items);
+        run.await();
+        assertTrue(run.isDone());
+        assertEquals(990, run.getTotal());
+        assertEquals(1000, run.getProcessed());
+        assertEquals(10, run.getFailures().size());
+        assertEquals(0, run.getFailures().get(0).getItem() % 100);
+        try {
+            executor.process(picky, items);
+            fail("Expecting IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            assertEquals("10 of 1000 items failed.", ex.getMessage());
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    public void testError() throws Exception {
+        Processor<Integer> fatal = new Processor<Integer>() {
+            public int process(Integer obj) {
+                if (obj == 500) {
+                    throw new AssertionError("Item 500 is fatal.");
+                }
+                return 1;
+            }
+        };
+        List<Integer> items = new ArrayList<Integer>();
+        for (int i = 1; i <= 1000; i++) {
+            items.add(i);
+        }
+        try {
+            executor.process(fatal, items);
+            fail("Expecting AssertionError.");
+        } catch (AssertionError err) {
+            assertEquals("Item 500 is fatal.", err.getMessage());
+        }
+        ProcessorExecutor.Run<Integer> run = executor.submit(fatal, items);
+        run.await();
+        assertTrue(run.isCancelled());
+        assertTrue(run.getError() instanceof AssertionError);
+        assertEquals(Integer.valueOf(500), run.getFailures().get(0).getItem());
+    }
+
+    public void testRejected() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        pool.shutdown();
+        ProcessorExecutor rejecting = new ProcessorExecutor(pool, 2);
+        try {
+            rejecting.submit(IDENTITY, Arrays.asList(1, 2, 3));
+            fail("Expecting RejectedExecutionException.");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+    }
+
+    public void testCancel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Processor<Integer> slow = new Processor<Integer>() {
+            public int process(Integer obj) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        };
+        List<Integer> items = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            items.add(i);
+        }
+        ProcessorExecutor.Run<Integer> run = executor.submit(slow, items);
+        started.await();
+        run.cancel();
+        release.countDown();
+        assertTrue(run.await(5, TimeUnit.SECONDS));
+        assertTrue(run.isCancelled());
+        assertTrue(run.getProcessed() < items.size());
+        assertEquals(run.getProcessed(), run.getTotal());
+    }
+
+    public void testStripedCounter() throws Exception {
+        final StripedCounter counter = new StripedCounter(4);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, counter.sum());
+        assertEquals(40000, counter.sumThenReset());
+        assertEquals(0, counter.sum());
+    }
+}
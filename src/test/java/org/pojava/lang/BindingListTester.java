@@ -0,0 +1,114 @@
+package org.pojava.lang;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BindingListTester extends TestCase {
+
+    public void testLanes() {
+        BindingList list = new BindingList();
+        UncheckedBinding named = new Binding<String>(String.class, "x");
+        list.addInt(7);
+        list.add(named);
+        list.addLong(1L << 40);
+        list.addDouble(2.5);
+        assertEquals(4, list.size());
+        assertEquals(BindingList.INT, list.tagOf(0));
+        assertEquals(7, list.getInt(0));
+        assertEquals(Integer.class, list.get(0).getType());
+        assertEquals(7, list.get(0).getObj());
+        assertSame(named, list.get(1));
+        assertEquals(1L << 40, list.getLong(2));
+        assertEquals(Long.class, list.get(2).getType());
+        assertEquals(2.5, list.getDouble(3));
+        assertEquals(2.5, ((DoubleBinding) list.get(3)).getDouble());
+    }
+
+    public void testPrimitiveBindings() {
+        IntBinding ib = new IntBinding(1);
+        ib.setObj(5L);
+        assertEquals(5, ib.getInt());
+        ib.setObj(6.0);
+        assertEquals(6, ib.getInt());
+        Object[] tooBig = {1L << 32, 2.5, "7", null};
+        for (Object obj : tooBig) {
+            try {
+                ib.setObj(obj);
+                fail("Expecting IllegalArgumentException for " + obj + ".");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().startsWith("IntBinding cannot hold "));
+            }
+        }
+        assertEquals(6, ib.getInt());
+        LongBinding lb = new LongBinding(1);
+        lb.setObj(new java.math.BigInteger("9223372036854775807"));
+        assertEquals(Long.MAX_VALUE, lb.getLong());
+        try {
+            lb.setObj(new java.math.BigInteger("9223372036854775808"));
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        DoubleBinding db = new DoubleBinding(0);
+        db.setObj(3);
+        assertEquals(3.0, db.getDouble());
+        assertEquals(Double.class, db.getType());
+    }
+
+    public void testObjectNumbers() {
+        BindingList list = new BindingList();
+        list.add(new Binding<Integer>(Integer.class, 12));
+        assertEquals(12L, list.getLong(0));
+        list.add(new Binding<String>(String.class, "twelve"));
+        try {
+            list.getInt(1);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertEquals("Binding 1 does not hold a number.", ex.getMessage());
+        }
+    }
+
+    public void testInsertAndRemove() {
+        BindingList list = new BindingList();
+        for (int i = 0; i < 30; i++) {
+            list.addInt(i);
+        }
+        BindingList front = new BindingList();
+        front.addLong(-1);
+        front.add(new Binding<String>(String.class, "a"));
+        list.addAll(0, front);
+        assertEquals(32, list.size());
+        assertEquals(BindingList.LONG, list.tagOf(0));
+        assertEquals("a", list.get(1).getObj());
+        assertEquals(29, list.getInt(31));
+        list.addAll(0, list);
+        assertEquals(64, list.size());
+        assertEquals("a", list.get(33).getObj());
+        assertEquals(-1L, list.remove(32).getObj());
+        assertEquals("a", list.get(32).getObj());
+        List<UncheckedBinding> plain = new ArrayList<UncheckedBinding>();
+        plain.add(new Binding<String>(String.class, "b"));
+        list.addAll(1, plain);
+        assertEquals("b", list.get(1).getObj());
+        assertEquals("a", list.get(2).getObj());
+        list.set(0, plain.get(0));
+        assertEquals(BindingList.OBJECT, list.tagOf(0));
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    public void testBoundString() {
+        BoundString bs = new BoundString("a=? AND b=? AND c=?");
+        bs.addBinding(5);
+        bs.addBinding(6L);
+        bs.addBinding(String.class, "x");
+        assertEquals("a=5 AND b=6 AND c='x'", bs.toString());
+        BoundString where = new BoundString(" WHERE id=?");
+        where.addBinding(9);
+        bs.insert(where);
+        assertEquals(BindingList.INT, ((BindingList) bs.getBindings()).tagOf(0));
+        assertEquals(9, ((BindingList) bs.getBindings()).getInt(0));
+    }
+}
@@ -27,4 +27,17 @@ public class BindingTester extends TestCase {
         assertEquals("new", bindingList.get(0).getObj().toString());
         assertEquals("123", bindingList.get(1).getObj().toString());
     }
+
+    public void testImmutableBinding() {
+        Binding<String> binding = new ImmutableBinding<String>(String.class, "fixed");
+        try {
+            binding.setValue("changed");
+            fail("Expecting UnsupportedOperationException.");
+        } catch (UnsupportedOperationException ex) {
+            assertEquals("fixed", binding.getValue());
+        }
+        assertSame(ImmutableBinding.nullOf(Long.class), ImmutableBinding.nullOf(Long.class));
+        assertEquals(Long.class, ImmutableBinding.nullOf(Long.class).getType());
+        assertSame(ImmutableBinding.FALSE, ImmutableBinding.valueOf(false));
+    }
 }
@@ -0,0 +1,47 @@
+package org.pojava.lang;
+
+import junit.framework.TestCase;
+
+public class BoundRopeTester extends TestCase {
+
+    public void testCompose() {
+        BoundRope where = new BoundRope("a=?", new Binding<String>(String.class, "x"))
+                .append(" AND ").append(new BoundRope("b=?", new Binding<Integer>(
+                        Integer.class, 2)));
+        BoundRope query = where.insert("SELECT * FROM t WHERE ");
+        assertEquals("SELECT * FROM t WHERE a=? AND b=?", query.getString());
+        assertEquals(query.getString().length(), query.length());
+        assertEquals(2, query.bindingCount());
+        assertEquals("x", query.getBindings().get(0).getObj());
+        assertEquals("SELECT * FROM t WHERE a='x' AND b=2", query.toString());
+        // The shared fragment is unchanged by the ropes built from it.
+        assertEquals("a=? AND b=?", where.getString());
+        assertSame(where, where.append(BoundRope.EMPTY));
+    }
+
+    public void testDeepNesting() {
+        BoundRope rope = BoundRope.EMPTY;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            if (i % 2 == 0) {
+                rope = rope.append(new BoundRope("?", new Binding<Integer>(Integer.class, i)));
+                expected.append('?');
+            } else {
+                rope = rope.insert("(").append(")");
+                expected.insert(0, '(').append(')');
+            }
+        }
+        assertEquals(expected.toString(), rope.getString());
+        assertEquals(10000, rope.getBindings().size());
+        assertEquals(18, rope.getBindings().get(9).getObj());
+        assertFalse(rope.toBoundString().isImbalanced());
+    }
+
+    public void testValueOf() {
+        BoundString bs = new BoundString("id=?");
+        bs.addBinding(Integer.class, 5);
+        BoundRope rope = BoundRope.valueOf(bs).insert("WHERE ");
+        bs.clear();
+        assertEquals("WHERE id=5", rope.toString());
+    }
+}
@@ -0,0 +1,64 @@
+package org.pojava.lang;
+
+import junit.framework.TestCase;
+
+public class BoundStringPoolTester extends TestCase {
+
+    public void testRecycle() {
+        BoundStringPool pool = new BoundStringPool(2, 64, 4);
+        BoundString bs = pool.acquire();
+        bs.append("SELECT * FROM t WHERE id=?");
+        bs.addBinding(1);
+        pool.release(bs);
+        assertEquals(1, pool.available());
+        BoundString again = pool.acquire();
+        assertSame(bs, again);
+        assertEquals("", again.getString());
+        assertEquals(0, again.getBindings().size());
+        assertEquals(0, again.getStringHash());
+        assertEquals(0, pool.available());
+    }
+
+    public void testCap() {
+        BoundStringPool pool = new BoundStringPool(2, 64, 4);
+        pool.release(new BoundString());
+        pool.release(new BoundString());
+        pool.release(new BoundString());
+        assertEquals(2, pool.available());
+    }
+
+    public void testTrim() {
+        BoundStringPool pool = new BoundStringPool(1, 16, 2);
+        BoundString bs = pool.acquire();
+        StringBuilder sql = new StringBuilder("?");
+        for (int i = 0; i < 100; i++) {
+            sql.append(", ?");
+            bs.addBinding(i);
+        }
+        bs.append(sql.toString());
+        assertTrue(bs.capacity() > 16);
+        pool.release(bs);
+        BoundString reused = pool.acquire();
+        // The oversized buffer is replaced by one of the retained size, not emptied to nothing.
+        assertSame(bs, reused);
+        assertEquals(16, reused.capacity());
+        reused.append("a=?");
+        reused.addBinding(String.class, "x");
+        assertEquals("a='x'", reused.toString());
+    }
+
+    public void testPerThread() throws Exception {
+        final BoundStringPool pool = new BoundStringPool();
+        pool.release(new BoundString());
+        final int[] seen = new int[1];
+        Thread other = new Thread() {
+            public void run() {
+                seen[0] = pool.available();
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(0, seen[0]);
+        assertEquals(1, pool.available());
+    }
+}
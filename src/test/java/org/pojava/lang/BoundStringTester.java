@@ -19,10 +19,13 @@ package org.pojava.lang;
 import junit.framework.TestCase;
 import org.pojava.datetime.DateTime;
 import org.pojava.datetime.DateTimeConfig;
+import org.pojava.datetime.DateTimeFormat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 
 public class BoundStringTester extends TestCase {
 
@@ -153,4 +156,107 @@ public class BoundStringTester extends TestCase {
         assertEquals(4, bs.getBindings().size());
         assertEquals("('01/01/2001', 'two', 3, '02/01/2003')", bs.toString());
     }
+
+    public void testStringHash() {
+        BoundString bs = new BoundString("one");
+        bs.append(", two");
+        bs.insert("zero, ");
+        BoundString tail = new BoundString(", three");
+        bs.append(tail);
+        assertEquals(bs.getString().hashCode(), bs.getStringHash());
+        bs.chop(7);
+        bs.append("!");
+        assertEquals("zero, one, two!", bs.getString());
+        assertEquals(bs.getString().hashCode(), bs.getStringHash());
+        assertTrue(bs.contentEquals("zero, one, two!"));
+        assertFalse(bs.contentEquals("zero, one, two?"));
+        bs.clear();
+        assertEquals(0, bs.getStringHash());
+    }
+
+    public void testRenderTo() throws Exception {
+        BoundString bs = new BoundString("SELECT * FROM t WHERE a=? AND b=? AND c=? AND d=?");
+        bs.addBinding(String.class, "x");
+        bs.addBinding(Integer.class, 7);
+        bs.addBinding(DateTime.class, new DateTime("2009/03/04 05:06:07.008"));
+        StringBuilder out = new StringBuilder();
+        bs.renderTo(out);
+        assertEquals("SELECT * FROM t WHERE a='x' AND b=7 AND c='03/04/2009 05:06:07.008' AND d=?",
+                out.toString());
+        assertEquals(out.toString(), bs.toString());
+    }
+
+    public void testRenderDates() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            long millis = (random.nextLong() % 8000000000000L);
+            if (i % 3 == 0) {
+                millis -= millis % 1000;
+            } else if (i % 3 == 1) {
+                millis -= millis % 86400000;
+            }
+            DateTime dt = new DateTime(millis);
+            BoundString bs = new BoundString("?");
+            bs.addBinding(DateTime.class, dt);
+            String expected = DateTimeFormat.format("MM/dd/yyyy HH:mm:ss.SSS", dt);
+            if (expected.endsWith(" 00:00:00.000")) {
+                expected = expected.substring(0, 10);
+            } else if (expected.endsWith(".000")) {
+                expected = expected.substring(0, 19);
+            }
+            assertEquals("'" + expected + "'", bs.toString());
+        }
+    }
+
+    public void testRenderAncientDates() {
+        BoundString bs = new BoundString("?, ?, ?");
+        bs.addBinding(DateTime.class, new DateTime("1486/10/17 11:42:48"));
+        bs.addBinding(DateTime.class, new DateTime("1486/10/17"));
+        bs.addBinding(DateTime.class, new DateTime("1486/10/17 11:42:48.250"));
+        assertEquals("'10/17/1486 11:42:48', '10/17/1486', '10/17/1486 11:42:48.250'",
+                bs.toString());
+    }
+
+    public void testAppendIn() {
+        BoundString bs = new BoundString("SELECT * FROM t WHERE id IN ");
+        bs.appendIn(Integer.class, Arrays.asList(1, 2, 3));
+        assertEquals("SELECT * FROM t WHERE id IN (?, ?, ?, ?)", bs.getString());
+        assertEquals("SELECT * FROM t WHERE id IN (1, 2, 3, 3)", bs.toString());
+        int[] defaults = BoundString.getDefaultInBuckets();
+        assertEquals(1000, defaults[defaults.length - 1]);
+        defaults[2] = 3;
+        assertEquals(4, BoundString.getDefaultInBuckets()[2]);
+        BoundString other = new BoundString("SELECT * FROM t WHERE id IN ");
+        other.appendIn(Integer.class, Arrays.asList(7, 8, 9, 10));
+        assertEquals(bs.getString(), other.getString());
+        BoundString custom = new BoundString("");
+        custom.appendIn(String.class, Arrays.asList("a", "b"), new int[]{5, 10});
+        assertEquals("('a', 'b', 'b', 'b', 'b')", custom.toString());
+        try {
+            custom.appendIn(String.class, new ArrayList<String>());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("An IN list requires at least one value.", ex.getMessage());
+        }
+    }
+
+    public void testSplitIn() {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 23; i++) {
+            ids.add(i);
+        }
+        int[] buckets = {2, 4, 10};
+        try {
+            new BoundString().appendIn(Integer.class, ids, buckets);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().endsWith("Use splitIn instead."));
+        }
+        List<BoundString> list = BoundString.splitIn("DELETE FROM t WHERE id IN ", Integer.class,
+                ids, null, buckets);
+        assertEquals(3, list.size());
+        assertEquals(list.get(0).getString(), list.get(1).getString());
+        assertEquals("DELETE FROM t WHERE id IN (20, 21, 22, 22)", list.get(2).toString());
+        assertFalse(list.get(0).isImbalanced());
+    }
 }
@@ -0,0 +1,69 @@
+package org.pojava.lang;
+
+import junit.framework.TestCase;
+
+public class BoundTemplateTester extends TestCase {
+
+    public void testPositional() {
+        BoundTemplate template = new BoundTemplate("SELECT * FROM t WHERE a=? AND b=?");
+        assertEquals(2, template.size());
+        assertEquals(template.getString().indexOf('?'), template.offsetOf(0));
+        assertNull(template.nameOf(0));
+        BoundParameters params = template.bind();
+        assertTrue(params.isImbalanced());
+        params.set(1, String.class, "two");
+        assertTrue(params.isImbalanced());
+        params.set(0, Integer.class, 1);
+        assertFalse(params.isImbalanced());
+        assertSame(template.getString(), params.getString());
+        assertEquals("SELECT * FROM t WHERE a=1 AND b='two'", params.toString());
+    }
+
+    public void testNamed() {
+        BoundTemplate template = new BoundTemplate(
+                "UPDATE t SET a=:value, b=:other WHERE c=:value");
+        assertEquals("UPDATE t SET a=?, b=? WHERE c=?", template.getString());
+        assertEquals(3, template.size());
+        assertEquals(2, template.indexesOf("value").length);
+        assertEquals(2, template.indexesOf("value")[1]);
+        assertEquals(0, template.indexesOf("missing").length);
+        BoundParameters params = template.bind();
+        params.set("value", Integer.class, 5);
+        assertTrue(params.isImbalanced());
+        params.set("other", Integer.class, 6);
+        assertFalse(params.isImbalanced());
+        assertEquals(5, params.getBindings().get(2).getObj());
+        BoundString bs = params.toBoundString();
+        assertFalse(bs.isImbalanced());
+        params.clear();
+        assertTrue(params.isImbalanced());
+        try {
+            params.set("missing", Integer.class, 1);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testSkipsLiteralsAndComments() {
+        BoundTemplate template = new BoundTemplate("SELECT 'what?', 'it''s :x', \"q?\", "
+                + "a::text -- huh?\n FROM t /* :y ? */ WHERE b=:z AND c=?");
+        assertEquals(2, template.size());
+        assertEquals("z", template.nameOf(0));
+        assertNull(template.nameOf(1));
+        assertTrue(template.getString().contains("'it''s :x'"));
+        assertTrue(template.getString().contains("a::text"));
+        assertTrue(template.getString().endsWith("WHERE b=? AND c=?"));
+    }
+
+    public void testRebindCount() {
+        BoundParameters params = new BoundTemplate("?, ?").bind();
+        params.set(0, Integer.class, 1);
+        params.set(0, Integer.class, 2);
+        assertTrue(params.isImbalanced());
+        params.set(1, Integer.class, 3);
+        assertFalse(params.isImbalanced());
+        params.set(1, null);
+        assertTrue(params.isImbalanced());
+    }
+}
@@ -0,0 +1,100 @@
+package org.pojava.persistence;
+
+import junit.framework.TestCase;
+import org.pojava.lang.BoundString;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class AsyncStatementLoggerTester extends TestCase {
+
+    private final List<String> messages = new CopyOnWriteArrayList<String>();
+
+    private Logger newLogger(Level level) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(level);
+        logger.addHandler(new Handler() {
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+            }
+        });
+        return logger;
+    }
+
+    public void testSnapshot() throws Exception {
+        AsyncStatementLogger log = new AsyncStatementLogger(newLogger(Level.ALL), Level.FINE, 8);
+        BoundString bs = new BoundString("UPDATE t SET a=? WHERE id=?");
+        bs.addBinding(String.class, "x");
+        bs.addBinding(5);
+        assertTrue(log.log(bs));
+        bs.getBindings().get(0).setObj("changed");
+        bs.append(" AND 1=1");
+        log.close();
+        assertEquals(1, log.getLogged());
+        assertEquals("UPDATE t SET a='x' WHERE id=5", messages.get(0));
+        assertFalse(log.log(bs));
+    }
+
+    public void testDiscardedByLevel() throws Exception {
+        AsyncStatementLogger log = new AsyncStatementLogger(newLogger(Level.INFO), Level.FINE, 8);
+        assertFalse(log.log(new BoundString("SELECT 1")));
+        log.close();
+        assertEquals(0, log.getLogged());
+        assertEquals(0, log.getDropped());
+    }
+
+    public void testOverflow() throws Exception {
+        AsyncStatementLogger log = new AsyncStatementLogger(newLogger(Level.ALL), Level.FINE, 2);
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++) {
+            BoundString bs = new BoundString("SELECT ?");
+            bs.addBinding(i);
+            if (log.log(bs)) {
+                accepted++;
+            }
+        }
+        log.close();
+        assertEquals(accepted, log.getLogged());
+        assertEquals(10000 - accepted, log.getDropped());
+        assertEquals(accepted, messages.size());
+    }
+
+    public void testCloseWhileLogging() throws Exception {
+        final AsyncStatementLogger log = new AsyncStatementLogger(newLogger(Level.ALL),
+                Level.FINE, 1024);
+        final AtomicLong accepted = new AtomicLong();
+        Thread[] callers = new Thread[4];
+        for (int t = 0; t < callers.length; t++) {
+            callers[t] = new Thread() {
+                public void run() {
+                    BoundString bs = new BoundString("SELECT 1");
+                    for (int i = 0; i < 100000; i++) {
+                        if (log.log(bs)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            callers[t].start();
+        }
+        Thread.sleep(5);
+        log.close();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        // Every statement whose log returned true was rendered.
+        assertEquals(accepted.get(), log.getLogged());
+    }
+}
@@ -0,0 +1,97 @@
+package org.pojava.persistence;
+
+import junit.framework.TestCase;
+import org.pojava.lang.BoundString;
+
+import java.util.List;
+
+public class BoundBatchTester extends TestCase {
+
+    private final RecordingJdbc jdbc = new RecordingJdbc();
+    private final List<String> calls = jdbc.calls;
+
+    private BoundBatch newBatch(int rows) {
+        BoundBatch batch = new BoundBatch("INSERT INTO t (id, name) VALUES", Integer.class,
+                String.class);
+        for (int i = 0; i < rows; i++) {
+            batch.addRow(i, i == 1 ? null : "n" + i);
+        }
+        return batch;
+    }
+
+    public void testRows() {
+        BoundBatch batch = newBatch(40);
+        assertEquals(40, batch.size());
+        assertEquals(2, batch.width());
+        assertEquals("n39", batch.get(39, 1));
+        assertNull(batch.get(1, 1));
+        try {
+            batch.addRow(1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Expected 2 values but got 1.", ex.getMessage());
+        }
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    public void testToBoundStrings() {
+        BoundBatch batch = new BoundBatch("INSERT INTO t (id, name) VALUES",
+                "ON CONFLICT (id) DO UPDATE SET name=EXCLUDED.name", Integer.class, String.class);
+        for (int i = 0; i < 5; i++) {
+            batch.addRow(i, "n" + i);
+        }
+        List<BoundString> list = batch.toBoundStrings(5);
+        assertEquals(3, list.size());
+        assertEquals("INSERT INTO t (id, name) VALUES (?, ?), (?, ?) ON CONFLICT (id)"
+                + " DO UPDATE SET name=EXCLUDED.name", list.get(0).getString());
+        assertEquals("INSERT INTO t (id, name) VALUES (4, 'n4') ON CONFLICT (id)"
+                + " DO UPDATE SET name=EXCLUDED.name", list.get(2).toString());
+        assertFalse(list.get(1).isImbalanced());
+    }
+
+    public void testRowRange() {
+        BoundBatch batch = newBatch(3);
+        assertEquals(2, batch.toBoundString(1, 3).getBindings().size() / batch.width());
+        int[][] invalid = {{-1, 1}, {2, 1}, {0, 4}};
+        for (int[] range : invalid) {
+            try {
+                batch.toBoundString(range[0], range[1]);
+                fail("Expected IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException ex) {
+                assertEquals("Rows " + range[0] + " to " + range[1] + " do not lie within 0 to 3.",
+                        ex.getMessage());
+            }
+        }
+    }
+
+    public void testRowWiderThanLimit() {
+        BoundBatch batch = newBatch(3);
+        assertEquals(1, batch.rowsPerStatement(2));
+        assertEquals(2, batch.rowsPerStatement(5));
+        try {
+            batch.rowsPerStatement(1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("A row of 2 values exceeds the limit of 1 parameters.", ex.getMessage());
+        }
+    }
+
+    public void testExecuteMultiRow() throws Exception {
+        StatementCache cache = new StatementCache(jdbc.connection(), 4);
+        assertEquals(3, newBatch(5).executeMultiRow(cache, 4));
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals("prepare INSERT INTO t (id, name) VALUES (?, ?), (?, ?)", calls.get(0));
+        assertEquals("setNull 4 12", calls.get(4));
+    }
+
+    public void testExecuteBatch() throws Exception {
+        StatementCache cache = new StatementCache(jdbc.connection(), 4);
+        newBatch(3).executeBatch(cache);
+        assertEquals("prepare INSERT INTO t (id, name) VALUES (?, ?)", calls.get(0));
+        assertEquals("addBatch", calls.get(3));
+        assertEquals("setNull 2 12", calls.get(5));
+        assertEquals("executeBatch", calls.get(calls.size() - 1));
+    }
+}
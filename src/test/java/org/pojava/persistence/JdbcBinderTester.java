@@ -0,0 +1,104 @@
+package org.pojava.persistence;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.lang.Binding;
+import org.pojava.lang.BoundString;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.transformation.AdaptorRegistry;
+import org.pojava.transformation.BooleanIntegerAdaptor;
+import org.pojava.transformation.DefaultAdaptor;
+import org.pojava.transformation.UncheckedAdaptor;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class JdbcBinderTester extends TestCase {
+
+    private final RecordingJdbc jdbc = new RecordingJdbc();
+    private final List<String> calls = jdbc.calls;
+
+    private PreparedStatement newStatement() {
+        return jdbc.statement("?");
+    }
+
+    public void testTypedSetters() throws Exception {
+        BoundString bs = new BoundString("?, ?, ?, ?, ?, ?, ?");
+        bs.addBinding(String.class, "x");
+        bs.addBinding(Integer.class, 3);
+        bs.addBinding(7L);
+        bs.addBinding(BigDecimal.class, new BigDecimal("1.5"));
+        bs.addBinding(Timestamp.class, null);
+        bs.addBinding(Object.class, 2.5);
+        bs.addBinding(Boolean.class, true);
+        new JdbcBinder().bind(newStatement(), bs);
+        assertEquals("setString 1 x", calls.get(0));
+        assertEquals("setInt 2 3", calls.get(1));
+        assertEquals("setLong 3 7", calls.get(2));
+        assertEquals("setBigDecimal 4 1.5", calls.get(3));
+        assertEquals("setNull 5 " + Types.TIMESTAMP, calls.get(4));
+        assertEquals("setDouble 6 2.5", calls.get(5));
+        assertEquals("setBoolean 7 true", calls.get(6));
+    }
+
+    public void testAdaptor() throws Exception {
+        DateTime dt = new DateTime("2009/01/02 03:04:05");
+        List<UncheckedBinding> bindings = new ArrayList<UncheckedBinding>();
+        bindings.add(new Binding<DateTime>(DateTime.class, dt));
+        bindings.add(new Binding<Date>(Date.class, null));
+        new JdbcBinder(new DefaultAdaptor()).bind(newStatement(), bindings);
+        assertEquals("setTimestamp 1 " + dt.toTimestamp(), calls.get(0));
+        assertEquals("setNull 2 " + Types.TIMESTAMP, calls.get(1));
+        calls.clear();
+        java.sql.Date day = new java.sql.Date(86400000L);
+        new JdbcBinder(new DefaultAdaptor()).bind(newStatement(), 1, java.sql.Date.class, day);
+        assertEquals("setTimestamp 1 " + new Timestamp(86400000L), calls.get(0));
+    }
+
+    public void testNullThroughAdaptor() throws Exception {
+        AdaptorRegistry registry = new AdaptorRegistry();
+        registry.register(new BooleanIntegerAdaptor());
+        JdbcBinder binder = new JdbcBinder(registry.resolve(Boolean.class, Integer.class));
+        binder.bind(newStatement(), 1, Boolean.class, true);
+        binder.bind(newStatement(), 2, Boolean.class, null);
+        assertEquals("setInt 1 1", calls.get(0));
+        // The null is bound as the adaptor's INTEGER, not as a BOOLEAN.
+        assertEquals("setNull 2 " + Types.INTEGER, calls.get(1));
+    }
+
+    public void testPrimitivesThroughAdaptor() throws Exception {
+        UncheckedAdaptor doubling = new DefaultAdaptor() {
+            @Override
+            public UncheckedBinding outbound(UncheckedBinding binding) {
+                return new UncheckedBinding(Long.class, ((Number) binding.getObj()).longValue() * 2);
+            }
+        };
+        BoundString bs = new BoundString("?");
+        bs.addBinding(21);
+        new JdbcBinder(doubling).bind(newStatement(), bs);
+        assertEquals("setLong 1 42", calls.get(0));
+    }
+
+    public void testPrimitiveDeclaredType() throws Exception {
+        List<UncheckedBinding> bindings = new ArrayList<UncheckedBinding>();
+        bindings.add(new UncheckedBinding(int.class, 5));
+        bindings.add(new UncheckedBinding(int.class, 6L));
+        new JdbcBinder().bind(newStatement(), bindings);
+        assertEquals("setInt 1 5", calls.get(0));
+        // The value is not the declared type's wrapper, so it binds by its own class.
+        assertEquals("setLong 2 6", calls.get(1));
+    }
+
+    public void testSqlType() {
+        assertEquals(Types.VARCHAR, JdbcBinder.sqlType(String.class));
+        assertEquals(Types.TIMESTAMP, JdbcBinder.sqlType(DateTime.class));
+        assertEquals(Types.TIMESTAMP, JdbcBinder.sqlType(Timestamp.class));
+        assertEquals(Types.INTEGER, JdbcBinder.sqlType(int.class));
+        assertEquals(Types.NULL, JdbcBinder.sqlType(List.class));
+    }
+}
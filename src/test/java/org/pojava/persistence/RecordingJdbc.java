@@ -0,0 +1,81 @@
+package org.pojava.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fake Connection and PreparedStatements that record each call as a line of text.
+ * <p/>
+ * prepareStatement records "prepare SQL", close records "close SQL", setters record their name
+ * and first two arguments, and any other call records its name. executeUpdate reports one row,
+ * and executeBatch an empty array.
+ */
+class RecordingJdbc {
+
+    final List<String> calls = new ArrayList<String>();
+
+    Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("prepareStatement".equals(method.getName())) {
+                            calls.add("prepare " + args[0]);
+                            return statement((String) args[0]);
+                        }
+                        calls.add(method.getName());
+                        return defaultFor(method.getReturnType());
+                    }
+                });
+    }
+
+    PreparedStatement statement(final String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.startsWith("set")) {
+                            calls.add(name + " " + args[0] + " " + args[1]);
+                        } else if ("close".equals(name)) {
+                            calls.add("close " + sql);
+                        } else {
+                            calls.add(name);
+                        }
+                        if ("executeUpdate".equals(name)) {
+                            return 1;
+                        }
+                        if ("executeBatch".equals(name)) {
+                            return new int[0];
+                        }
+                        return defaultFor(method.getReturnType());
+                    }
+                });
+    }
+
+    /**
+     * The recorded calls starting with a prefix, in order.
+     */
+    List<String> calls(String prefix) {
+        List<String> list = new ArrayList<String>();
+        for (String call : calls) {
+            if (call.startsWith(prefix)) {
+                list.add(call);
+            }
+        }
+        return list;
+    }
+
+    private static Object defaultFor(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
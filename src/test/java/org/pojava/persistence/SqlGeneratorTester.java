@@ -0,0 +1,137 @@
+package org.pojava.persistence;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.examples.Person;
+import org.pojava.lang.BoundString;
+import org.pojava.lang.UncheckedBinding;
+import org.pojava.transformation.UncheckedAdaptor;
+
+import java.sql.Timestamp;
+
+public class SqlGeneratorTester extends TestCase {
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    public void testInsert() {
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", "id");
+        BoundString bs = gen.insert(new Person(1, "Ann", new DateTime(1000)));
+        assertEquals("INSERT INTO person (birth, id, name) VALUES (?, ?, ?)", bs.getString());
+        assertEquals(3, bs.getBindings().size());
+        assertFalse(bs.isImbalanced());
+        // DefaultAdaptor converts DateTime to Timestamp on the way out.
+        assertEquals(Timestamp.class, bs.getBindings().get(0).getType());
+        assertEquals(1000, ((Timestamp) bs.getBindings().get(0).getObj()).getTime());
+        assertEquals(1, bs.getBindings().get(1).getObj());
+    }
+
+    public void testUpdate() {
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", "id");
+        BoundString bs = gen.update(new Person(2, "Bob", null));
+        assertEquals("UPDATE person SET birth=?, name=? WHERE id=?", bs.getString());
+        // A null passes through the adaptor too, so it is bound as the column's type.
+        assertNull(bs.getBindings().get(0).getObj());
+        assertEquals(Timestamp.class, bs.getBindings().get(0).getType());
+        assertEquals("Bob", bs.getBindings().get(1).getObj());
+        assertEquals(2, bs.getBindings().get(2).getObj());
+    }
+
+    public void testSelectSubset() {
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", "id");
+        BoundString bs = gen.select(new Person(3, null, null), "name", "birth");
+        assertEquals("SELECT name, birth FROM person WHERE id=?", bs.getString());
+        assertEquals(1, bs.getBindings().size());
+        assertEquals(3, bs.getBindings().get(0).getObj());
+    }
+
+    public void testPlanIsCached() {
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", "id");
+        String[] props = {"name"};
+        assertSame(gen.sql(StatementKind.UPDATE, props),
+                gen.sql(StatementKind.UPDATE, new String[]{"name"}));
+        assertEquals("UPDATE person SET name=? WHERE id=?", gen.sql(StatementKind.UPDATE, props));
+    }
+
+    public void testCallerArraysNotShared() {
+        String[] keys = {"id"};
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", keys);
+        keys[0] = "name";
+        String[] props = {"name"};
+        assertEquals("UPDATE person SET name=? WHERE id=?", gen.sql(StatementKind.UPDATE, props));
+        props[0] = "birth";
+        assertEquals("UPDATE person SET birth=? WHERE id=?", gen.sql(StatementKind.UPDATE,
+                props));
+        assertEquals("UPDATE person SET name=? WHERE id=?", gen.sql(StatementKind.UPDATE,
+                new String[]{"name"}));
+    }
+
+    public void testNullsAdapted() {
+        // Stores each name as its length, including a null name as a null length.
+        UncheckedAdaptor lengths = new UncheckedAdaptor() {
+            public Class<?> inboundType() {
+                return Object.class;
+            }
+
+            public Class<?> outboundType() {
+                return Object.class;
+            }
+
+            public UncheckedBinding inbound(UncheckedBinding outBinding) {
+                throw new UnsupportedOperationException("Only outbound is used.");
+            }
+
+            public UncheckedBinding outbound(UncheckedBinding inBinding) {
+                if (inBinding.getType() != String.class) {
+                    return inBinding;
+                }
+                String name = (String) inBinding.getObj();
+                return new UncheckedBinding(Integer.class, name == null ? null : name.length());
+            }
+        };
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", lengths,
+                "id");
+        BoundString bs = gen.update(new Person(4, null, null), "name");
+        assertEquals(Integer.class, bs.getBindings().get(0).getType());
+        assertNull(bs.getBindings().get(0).getObj());
+        assertEquals(Integer.valueOf(3), gen.update(new Person(4, "Dee", null), "name")
+                .getBindings().get(0).getObj());
+    }
+
+    public void testPropertyRequired() {
+        SqlGenerator<Person> gen = new SqlGenerator<Person>(Person.class, "person", "id");
+        try {
+            gen.insert(new Person(), new String[0]);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("At least one property is required for INSERT.", ex.getMessage());
+        }
+        try {
+            gen.sql(StatementKind.SELECT, new String[0]);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("At least one property is required for SELECT.", ex.getMessage());
+        }
+        // Every property is a key, so a plain update has nothing to set.
+        SqlGenerator<Person> allKeys = new SqlGenerator<Person>(Person.class, "person", "id",
+                "name", "birth");
+        try {
+            allKeys.update(new Person(5, "Eve", null));
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("At least one property is required for UPDATE.", ex.getMessage());
+        }
+    }
+
+    public void testKeyRequired() {
+        try {
+            new SqlGenerator<Person>(Person.class, "person");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("At least one key property is required.", ex.getMessage());
+        }
+    }
+}
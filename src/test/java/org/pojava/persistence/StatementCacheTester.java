@@ -0,0 +1,42 @@
+package org.pojava.persistence;
+
+import junit.framework.TestCase;
+import org.pojava.lang.BoundString;
+
+import java.sql.PreparedStatement;
+
+public class StatementCacheTester extends TestCase {
+
+    private final RecordingJdbc jdbc = new RecordingJdbc();
+
+    public void testHitsAndMisses() throws Exception {
+        StatementCache cache = new StatementCache(jdbc.connection(), 4);
+        BoundString bs = new BoundString("SELECT * FROM t");
+        bs.append(" WHERE id=?");
+        PreparedStatement ps = cache.prepare(bs);
+        assertSame(ps, cache.prepare("SELECT * FROM t WHERE id=?"));
+        BoundString other = new BoundString();
+        other.insert(" WHERE id=?");
+        other.insert("SELECT * FROM t");
+        assertSame(ps, cache.prepare(other));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, jdbc.calls("prepare ").size());
+    }
+
+    public void testLruEviction() throws Exception {
+        StatementCache cache = new StatementCache(jdbc.connection(), 2);
+        cache.prepare("A");
+        cache.prepare("B");
+        cache.prepare("A");
+        cache.prepare("C");
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals("close B", jdbc.calls("close ").get(0));
+        cache.prepare("A");
+        assertEquals(3, cache.getMisses());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(3, jdbc.calls("close ").size());
+    }
+}
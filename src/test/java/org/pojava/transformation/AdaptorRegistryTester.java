@@ -0,0 +1,83 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.lang.Binding;
+import org.pojava.lang.UncheckedBinding;
+
+import java.util.Date;
+
+public class AdaptorRegistryTester extends TestCase {
+
+    /**
+     * Writes any Number as hexadecimal text.
+     */
+    private static class HexAdaptor extends BindingAdaptor<Number, String> {
+
+        public Class<Number> inboundType() {
+            return Number.class;
+        }
+
+        public Class<String> outboundType() {
+            return String.class;
+        }
+
+        public Binding<Number> inbound(Binding<String> binding) {
+            return new Binding<Number>(Number.class, binding.getObj() == null ? null : Long
+                    .valueOf(binding.getValue(), 16));
+        }
+
+        public Binding<String> outbound(Binding<Number> binding) {
+            return new Binding<String>(String.class, binding.getObj() == null ? null : Long
+                    .toHexString(binding.getValue().longValue()));
+        }
+    }
+
+    private AdaptorRegistry newRegistry() {
+        AdaptorRegistry registry = new AdaptorRegistry();
+        registry.register(new BooleanIntegerAdaptor());
+        registry.register(new BooleanYNAdaptor());
+        return registry;
+    }
+
+    public void testDirectAndReversed() {
+        AdaptorRegistry registry = newRegistry();
+        UncheckedBinding out = registry.adapt(new Binding<Boolean>(Boolean.class, true),
+                Integer.class);
+        assertEquals(Integer.class, out.getType());
+        assertEquals(1, out.getObj());
+        assertEquals(Boolean.FALSE, registry.adapt(new Binding<Integer>(Integer.class, 0),
+                boolean.class).getObj());
+        assertSame(registry.resolve(Boolean.class, Integer.class), registry.resolve(
+                Boolean.class, Integer.class));
+    }
+
+    public void testChain() {
+        AdaptorRegistry registry = newRegistry();
+        UncheckedAdaptor adaptor = registry.resolve(String.class, Integer.class);
+        assertEquals(1, adaptor.outbound(new Binding<String>(String.class, "Y")).getObj());
+        assertEquals("N", adaptor.inbound(new Binding<Integer>(Integer.class, 0)).getObj());
+        assertNull(adaptor.outbound(new Binding<String>(String.class, null)).getObj());
+    }
+
+    public void testHierarchy() {
+        AdaptorRegistry registry = newRegistry();
+        assertNull(registry.resolve(Long.class, String.class));
+        registry.register(new HexAdaptor());
+        assertEquals("ff", registry.adapt(new Binding<Long>(Long.class, 255L), String.class)
+                .getObj());
+        // Single adaptors win over the Integer-to-Boolean-to-String chain.
+        assertEquals("10", registry.adapt(new Binding<Integer>(Integer.class, 16),
+                String.class).getObj());
+    }
+
+    public void testMissing() {
+        AdaptorRegistry registry = newRegistry();
+        assertNull(registry.resolve(Date.class, Boolean.class));
+        try {
+            registry.adapt(new Binding<Date>(Date.class, new Date()), Boolean.class);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("No adaptor from java.util.Date to java.lang.Boolean.", ex.getMessage());
+        }
+    }
+}
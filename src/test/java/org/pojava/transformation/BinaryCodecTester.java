@@ -0,0 +1,327 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.examples.Person;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class BinaryCodecTester extends TestCase {
+
+    public enum Color {
+        RED, GREEN, BLUE
+    }
+
+    public static class Sample {
+        private boolean flag;
+        private int count;
+        private long total;
+        private double ratio;
+        private Integer boxed;
+        private String text;
+        private Color color;
+        private Timestamp stamp;
+        private int[] numbers;
+        private List<String> tags;
+        private Person owner;
+
+        public boolean isFlag() {
+            return flag;
+        }
+
+        public void setFlag(boolean flag) {
+            this.flag = flag;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public Integer getBoxed() {
+            return boxed;
+        }
+
+        public void setBoxed(Integer boxed) {
+            this.boxed = boxed;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public Color getColor() {
+            return color;
+        }
+
+        public void setColor(Color color) {
+            this.color = color;
+        }
+
+        public Timestamp getStamp() {
+            return stamp;
+        }
+
+        public void setStamp(Timestamp stamp) {
+            this.stamp = stamp;
+        }
+
+        public int[] getNumbers() {
+            return numbers;
+        }
+
+        public void setNumbers(int[] numbers) {
+            this.numbers = numbers;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Person getOwner() {
+            return owner;
+        }
+
+        public void setOwner(Person owner) {
+            this.owner = owner;
+        }
+    }
+
+    public static class Node {
+        private DateTime when;
+        private SortedSet<String> names;
+        private Queue<Integer> pending;
+        private Node next;
+
+        public DateTime getWhen() {
+            return when;
+        }
+
+        public void setWhen(DateTime when) {
+            this.when = when;
+        }
+
+        public SortedSet<String> getNames() {
+            return names;
+        }
+
+        public void setNames(SortedSet<String> names) {
+            this.names = names;
+        }
+
+        public Queue<Integer> getPending() {
+            return pending;
+        }
+
+        public void setPending(Queue<Integer> pending) {
+            this.pending = pending;
+        }
+
+        public Node getNext() {
+            return next;
+        }
+
+        public void setNext(Node next) {
+            this.next = next;
+        }
+    }
+
+    public static class Holder {
+        private Node node;
+
+        public Node getNode() {
+            return node;
+        }
+
+        public void setNode(Node node) {
+            this.node = node;
+        }
+    }
+
+    public static class Shelf {
+        private List<String>[] rows;
+        private List<List<Integer>> grid;
+
+        public List<String>[] getRows() {
+            return rows;
+        }
+
+        public void setRows(List<String>[] rows) {
+            this.rows = rows;
+        }
+
+        public List<List<Integer>> getGrid() {
+            return grid;
+        }
+
+        public void setGrid(List<List<Integer>> grid) {
+            this.grid = grid;
+        }
+    }
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    public void testRoundTrip() {
+        Sample sample = new Sample();
+        sample.setFlag(true);
+        sample.setCount(-42);
+        sample.setTotal(Long.MAX_VALUE);
+        sample.setRatio(0.25);
+        sample.setText("naïve € 😀");
+        sample.setColor(Color.BLUE);
+        Timestamp stamp = new Timestamp(123456789L);
+        stamp.setNanos(789000123);
+        sample.setStamp(stamp);
+        sample.setNumbers(new int[]{3, -1, 4});
+        List<String> tags = new ArrayList<String>();
+        tags.add("a");
+        tags.add(null);
+        sample.setTags(tags);
+        sample.setOwner(new Person(5, "Five", new DateTime(5000)));
+
+        BinaryCodec<Sample> codec = BinaryCodec.forClass(Sample.class);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(sample, buffer);
+        buffer.flip();
+        assertEquals(codec.fingerprint(), BinaryCodec.readFingerprint(buffer));
+        Sample copy = codec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertTrue(copy.isFlag());
+        assertEquals(-42, copy.getCount());
+        assertEquals(Long.MAX_VALUE, copy.getTotal());
+        assertEquals(0.25, copy.getRatio());
+        assertNull(copy.getBoxed());
+        assertEquals(sample.getText(), copy.getText());
+        assertEquals(Color.BLUE, copy.getColor());
+        assertEquals(stamp, copy.getStamp());
+        assertEquals(3, copy.getNumbers().length);
+        assertEquals(-1, copy.getNumbers()[1]);
+        assertEquals(tags, copy.getTags());
+        assertEquals("Five", copy.getOwner().getName());
+        assertEquals(new DateTime(5000), copy.getOwner().getBirth());
+    }
+
+    public void testBufferReuse() {
+        BinaryCodec<Person> codec = BinaryCodec.forClass(Person.class);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        Person reuse = new Person();
+        for (int i = 0; i < 3; i++) {
+            buffer.clear();
+            codec.encode(new Person(i, "P" + i, null), buffer);
+            buffer.flip();
+            assertSame(reuse, codec.decode(buffer, reuse));
+            assertEquals(i, reuse.getId());
+            assertEquals("P" + i, reuse.getName());
+            assertNull(reuse.getBirth());
+        }
+    }
+
+    public void testFingerprintMismatch() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        BinaryCodec.forClass(Person.class).encode(new Person(1, "one", null), buffer);
+        buffer.flip();
+        assertTrue(BinaryCodec.forClass(Sample.class).fingerprint() != BinaryCodec
+                .readFingerprint(buffer));
+        try {
+            BinaryCodec.forClass(Sample.class).decode(buffer);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testNestedTypes() {
+        Timestamp stamp = new Timestamp(-1500);
+        stamp.setNanos(500000123);
+        Node tail = new Node();
+        tail.setWhen(new DateTime(stamp));
+        Node head = new Node();
+        TreeSet<String> names = new TreeSet<String>();
+        names.add("b");
+        names.add("a");
+        head.setNames(names);
+        Queue<Integer> pending = new ArrayDeque<Integer>();
+        pending.add(2);
+        pending.add(1);
+        head.setPending(pending);
+        head.setNext(tail);
+        Holder holder = new Holder();
+        holder.setNode(head);
+
+        // A self-referencing bean neither recurses endlessly nor shares a nested fingerprint.
+        BinaryCodec<Holder> codec = BinaryCodec.forClass(Holder.class);
+        assertTrue(codec.fingerprint() != BinaryCodec.forClass(Node.class).fingerprint());
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        codec.encode(holder, buffer);
+        buffer.flip();
+        Node copy = codec.decode(buffer).getNode();
+        assertTrue(copy.getNames() instanceof TreeSet);
+        assertEquals(names, copy.getNames());
+        assertEquals(Integer.valueOf(2), copy.getPending().poll());
+        assertEquals(Integer.valueOf(1), copy.getPending().poll());
+        assertNull(copy.getWhen());
+        assertEquals(tail.getWhen(), copy.getNext().getWhen());
+        assertEquals(500000123, copy.getNext().getWhen().getNanos());
+        assertNull(copy.getNext().getNext());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testGenericElements() {
+        Shelf shelf = new Shelf();
+        List<String>[] rows = new List[2];
+        rows[0] = new ArrayList<String>();
+        rows[0].add("x");
+        shelf.setRows(rows);
+        List<List<Integer>> grid = new ArrayList<List<Integer>>();
+        grid.add(new ArrayList<Integer>());
+        grid.get(0).add(7);
+        shelf.setGrid(grid);
+
+        BinaryCodec<Shelf> codec = BinaryCodec.forClass(Shelf.class);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.encode(shelf, buffer);
+        buffer.flip();
+        Shelf copy = codec.decode(buffer);
+        assertEquals("x", copy.getRows()[0].get(0));
+        assertNull(copy.getRows()[1]);
+        assertEquals(Integer.valueOf(7), copy.getGrid().get(0).get(0));
+    }
+}
@@ -2,6 +2,7 @@ package org.pojava.transformation;
 
 import junit.framework.TestCase;
 import org.pojava.lang.Binding;
+import org.pojava.lang.ImmutableBinding;
 
 public class BooleanIntegerAdaptorTester extends TestCase {
 
@@ -32,4 +33,28 @@ public class BooleanIntegerAdaptorTester extends TestCase {
         assertEquals(null, adaptor.inbound(null).getObj());
         assertEquals(null, adaptor.outbound(null).getObj());
     }
+
+    public void testSharedBindings() {
+        BindingAdaptor<Boolean, Integer> adaptor = new BooleanIntegerAdaptor();
+        Binding<Integer> one = adaptor.outbound(new Binding<Boolean>(Boolean.class, true));
+        assertSame(one, adaptor.outbound(new Binding<Boolean>(Boolean.class, true)));
+        assertSame(ImmutableBinding.TRUE, adaptor.inbound(one));
+        assertSame(adaptor.inbound(null), adaptor.inbound(new Binding<Integer>(Integer.class,
+                null)));
+        try {
+            one.setValue(2);
+            fail("Expecting UnsupportedOperationException.");
+        } catch (UnsupportedOperationException ex) {
+            assertEquals(Integer.valueOf(1), one.getValue());
+        }
+    }
+
+    public void testValues() {
+        BindingAdaptor<Boolean, Integer> adaptor = new BooleanIntegerAdaptor();
+        assertEquals(Boolean.TRUE, adaptor.toInbound(5));
+        assertEquals(Boolean.FALSE, adaptor.toInbound(0));
+        assertNull(adaptor.toInbound(null));
+        assertEquals(Integer.valueOf(0), adaptor.toOutbound(false));
+        assertNull(adaptor.toOutbound(null));
+    }
 }
@@ -43,4 +43,15 @@ public class BooleanYNAdaptorTester extends TestCase {
         assertEquals(null, adaptor.inbound(null).getObj());
         assertEquals(null, adaptor.outbound(null).getObj());
     }
+
+    public void testValues() {
+        BindingAdaptor<Boolean, String> adaptor = new BooleanYNAdaptor();
+        assertEquals(Boolean.TRUE, adaptor.toInbound("yes"));
+        assertEquals(Boolean.FALSE, adaptor.toInbound("n"));
+        assertNull(adaptor.toInbound("?"));
+        assertEquals("Y", adaptor.toOutbound(true));
+        assertNull(adaptor.toOutbound(null));
+        assertSame(adaptor.outbound(new Binding<Boolean>(Boolean.class, false)), adaptor
+                .outbound(new Binding<Boolean>(Boolean.class, false)));
+    }
 }
@@ -0,0 +1,89 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+public class ColumnToolTester extends TestCase {
+
+    public void testTimestamps() {
+        long[] millis = {0L, 1234567890123L};
+        Timestamp[] timestamps = ColumnTool.toTimestamps(millis);
+        assertEquals(1234567890123L, timestamps[1].getTime());
+        assertTrue(Arrays.equals(millis, ColumnTool.toMillis(timestamps, -1)));
+        assertEquals(-1, ColumnTool.toMillis(new Date[]{null}, -1)[0]);
+        assertEquals(1234567890123L, ColumnTool.toDateTimes(millis)[1].toMillis());
+    }
+
+    public void testBoxing() {
+        Integer[] boxed = ColumnTool.box(new int[]{1, 2, 3});
+        assertEquals(Integer.valueOf(3), boxed[2]);
+        boxed[1] = null;
+        assertTrue(Arrays.equals(new int[]{1, 0, 3}, ColumnTool.unbox(boxed, 0)));
+        Long[] longs = ColumnTool.box(new long[]{5L});
+        assertTrue(Arrays.equals(new long[]{5L}, ColumnTool.unbox(longs, 0L)));
+    }
+
+    public void testOutbound() {
+        DateTime dt = new DateTime("2009/05/06");
+        Object[] out = ColumnTool.outbound(new DefaultAdaptor(), DateTime.class,
+                new Object[]{dt, null});
+        assertEquals(dt.toTimestamp(), out[0]);
+        assertNull(out[1]);
+        Object[] same = ColumnTool.outbound(new DefaultAdaptor(), String.class,
+                new Object[]{"a"});
+        assertEquals("a", same[0]);
+    }
+
+    public void testInbound() {
+        Timestamp ts = new Timestamp(5000);
+        Object[] in = ColumnTool.inbound(new DefaultAdaptor(), Object.class, new Object[]{ts,
+                null, "x", new Date(6000)});
+        assertEquals(new DateTime(5000), in[0]);
+        assertNull(in[1]);
+        assertEquals("x", in[2]);
+        assertEquals(new DateTime(6000), in[3]);
+        Time time = new Time(7000);
+        assertSame(time, ColumnTool.inbound(new DefaultAdaptor(), Time.class,
+                new Object[]{time})[0]);
+        AdaptorRegistry registry = new AdaptorRegistry();
+        registry.register(new BooleanIntegerAdaptor());
+        Object[] flags = ColumnTool.inbound(registry.resolve(Boolean.class, Integer.class),
+                Integer.class, new Object[]{1, 0});
+        assertEquals(Boolean.TRUE, flags[0]);
+        assertEquals(Boolean.FALSE, flags[1]);
+    }
+
+    public void testAdaptorArrays() {
+        BooleanIntegerAdaptor adaptor = new BooleanIntegerAdaptor();
+        assertTrue(Arrays.equals(new boolean[]{true, false, true}, adaptor.toInbound(
+                new int[]{1, 0, -4})));
+        assertTrue(Arrays.equals(new int[]{0, 1}, adaptor.toOutbound(new boolean[]{false,
+                true})));
+        assertTrue(Arrays.equals(new Integer[]{1, null, 0}, adaptor.toOutbound(new Boolean[]{
+                true, null, false}, null)));
+        // The per-element default applies to adaptors without a loop of their own.
+        BindingAdaptor<Boolean, String> yn = new BooleanYNAdaptor();
+        Boolean[] flags = yn.toInbound(new String[]{"Y", "N", null}, null);
+        assertTrue(Arrays.equals(new Boolean[]{true, false, null}, flags));
+        String[] into = new String[3];
+        assertSame(into, yn.toOutbound(flags, into));
+        assertEquals("N", into[1]);
+        try {
+            yn.toOutbound(flags, new String[2]);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Result array holds 2 values but 3 are needed.", ex.getMessage());
+        }
+        try {
+            adaptor.toInbound(new Integer[]{1, 0}, new Boolean[1]);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Result array holds 1 values but 2 are needed.", ex.getMessage());
+        }
+    }
+}
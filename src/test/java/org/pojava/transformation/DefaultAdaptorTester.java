@@ -5,6 +5,7 @@ import org.pojava.datetime.DateTime;
 import org.pojava.lang.Binding;
 import org.pojava.lang.UncheckedBinding;
 
+import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Date;
 
@@ -46,4 +47,27 @@ public class DefaultAdaptorTester extends TestCase {
         // Look out... if we can't determine type, we just return null.
         assertEquals(null, adaptor.outbound(null));
     }
+
+    public void testNullDates() {
+        UncheckedAdaptor adaptor = new DefaultAdaptor();
+        UncheckedBinding adapted = adaptor.outbound(new Binding<DateTime>(DateTime.class, null));
+        assertEquals(Timestamp.class, adapted.getType());
+        assertNull(adapted.getObj());
+        assertSame(adapted, adaptor.outbound(new Binding<Date>(Date.class, null)));
+        UncheckedBinding name = new Binding<String>(String.class, null);
+        assertSame(name, adaptor.outbound(name));
+    }
+
+    public void testDateHandlers() {
+        UncheckedAdaptor adaptor = new DefaultAdaptor();
+        DateTime dt = new DateTime("2009/02/03 04:05:06.789");
+        UncheckedBinding adapted = adaptor.outbound(new Binding<DateTime>(DateTime.class, dt));
+        assertEquals(dt.toTimestamp(), adapted.getObj());
+        adapted = adaptor.inbound(new Binding<java.sql.Date>(java.sql.Date.class,
+                new java.sql.Date(dt.toMillis())));
+        assertEquals(dt, adapted.getObj());
+        UncheckedBinding time = new Binding<Time>(Time.class, new Time(5000));
+        assertSame(time, adaptor.inbound(time));
+        assertSame(time, adaptor.outbound(time));
+    }
 }
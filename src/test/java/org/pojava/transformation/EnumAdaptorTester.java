@@ -0,0 +1,154 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.lang.Binding;
+import org.pojava.lang.UncheckedBinding;
+
+import java.math.BigDecimal;
+
+public class EnumAdaptorTester extends TestCase {
+
+    private enum Status {
+        ACTIVE, INACTIVE, PENDING
+    }
+
+    public void testOrdinal() {
+        EnumAdaptor<Status, Integer> adaptor = EnumAdaptor.byOrdinal(Status.class);
+        assertEquals(Integer.class, adaptor.outboundType());
+        assertEquals(Status.PENDING, adaptor.toInbound(2));
+        assertEquals(Integer.valueOf(1), adaptor.toOutbound(Status.INACTIVE));
+        assertNull(adaptor.toInbound(null));
+        assertNull(adaptor.toOutbound(null));
+    }
+
+    public void testName() {
+        EnumAdaptor<Status, String> adaptor = EnumAdaptor.byName(Status.class);
+        for (Status status : Status.values()) {
+            assertEquals(status, adaptor.toInbound(status.name()));
+            assertEquals(status.name(), adaptor.toOutbound(status));
+        }
+        try {
+            adaptor.toInbound("active");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("No Status has code 'active'.", ex.getMessage());
+        }
+    }
+
+    public void testCharCodes() {
+        EnumAdaptor<Status, String> adaptor = EnumAdaptor.byCode(Status.class, "A", "I", "P");
+        assertEquals(Status.INACTIVE, adaptor.toInbound("I"));
+        assertEquals("P", adaptor.toOutbound(Status.PENDING));
+        String[] unknown = {"B", "", "AI"};
+        for (String code : unknown) {
+            try {
+                adaptor.toInbound(code);
+                fail("Expecting IllegalArgumentException.");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testIntCodes() {
+        EnumAdaptor<Status, Integer> dense = EnumAdaptor.byCode(Status.class, 10, -5, 40);
+        assertEquals(Status.INACTIVE, dense.toInbound(-5));
+        assertEquals(Integer.valueOf(40), dense.toOutbound(Status.PENDING));
+        EnumAdaptor<Status, Integer> sparse = EnumAdaptor.byCode(Status.class, 1, 1000000,
+                Integer.MIN_VALUE);
+        assertEquals(Status.PENDING, sparse.toInbound(Integer.MIN_VALUE));
+        assertEquals(Status.INACTIVE, sparse.toInbound(1000000));
+        try {
+            sparse.toInbound(2);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testNumericCodes() {
+        EnumAdaptor<Status, Integer> adaptor = EnumAdaptor.byCode(Status.class, 10, 20, 30);
+        // JDBC drivers may return any Number for an integer column.
+        BindingAdaptor raw = adaptor;
+        assertEquals(Status.INACTIVE, raw.toInbound(20L));
+        assertEquals(Status.PENDING, raw.toInbound(new BigDecimal("30.00")));
+        assertEquals(Status.ACTIVE, adaptor.inbound(new Binding(Long.class, 10L)).getValue());
+        Object[] unknown = {20.5, 4294967306L, "10"};
+        for (Object code : unknown) {
+            try {
+                raw.toInbound(code);
+                fail("Expecting IllegalArgumentException for " + code + ".");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testInvalidCodes() {
+        try {
+            EnumAdaptor.byCode(Status.class, "A", "I");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            EnumAdaptor.byCode(Status.class, "ON", "OFF", "ON");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Duplicate code 'ON'.", ex.getMessage());
+        }
+        try {
+            EnumAdaptor.byCode(Status.class, 3, 4, 3);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Duplicate code 3.", ex.getMessage());
+        }
+    }
+
+    public void testCollidingHashes() {
+        // "Aa" and "BB" share a hashCode, so no perfect hash can separate them.
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        EnumAdaptor<Status, String> adaptor = EnumAdaptor.byCode(Status.class, "Aa", "BB", "C");
+        assertEquals(Status.ACTIVE, adaptor.toInbound("Aa"));
+        assertEquals(Status.INACTIVE, adaptor.toInbound("BB"));
+        assertEquals(Status.PENDING, adaptor.toInbound("C"));
+        try {
+            adaptor.toInbound("AaBB");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testNullCode() {
+        try {
+            EnumAdaptor.byCode(Status.class, "A", null, "P");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Codes cannot be null.", ex.getMessage());
+        }
+    }
+
+    public void testSharedBindings() {
+        EnumAdaptor<Status, String> adaptor = EnumAdaptor.byCode(Status.class, "act", "ina",
+                "pen");
+        Binding<String> code = adaptor.outbound(new Binding<Status>(Status.class,
+                Status.ACTIVE));
+        assertEquals("act", code.getValue());
+        assertSame(code, adaptor.outbound(new Binding<Status>(Status.class, Status.ACTIVE)));
+        Binding<Status> status = adaptor.inbound(new Binding<String>(String.class, "pen"));
+        assertEquals(Status.PENDING, status.getValue());
+        assertSame(status, adaptor.inbound(new Binding<String>(String.class, "pen")));
+        assertNull(adaptor.inbound(null).getObj());
+        assertNull(adaptor.outbound(new Binding<Status>(Status.class, null)).getObj());
+    }
+
+    public void testRegistry() {
+        AdaptorRegistry registry = new AdaptorRegistry();
+        registry.register(EnumAdaptor.byCode(Status.class, "A", "I", "P"));
+        UncheckedAdaptor adaptor = registry.resolve(String.class, Status.class);
+        assertEquals(Status.ACTIVE, adaptor.outbound(new UncheckedBinding(
+                String.class, "A")).getObj());
+    }
+}
@@ -0,0 +1,140 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.examples.Person;
+import org.pojava.lang.Binding;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HydrationPlanTester extends TestCase {
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    public void testHydrate() {
+        HydrationPlan<Person> plan = HydrationPlan.of(Person.class, "id", "name", "birth");
+        Person person = plan.hydrate(new Object[]{7, "Seven", new Timestamp(7000)});
+        assertEquals(7, person.getId());
+        assertEquals("Seven", person.getName());
+        assertEquals(new DateTime(7000), person.getBirth());
+    }
+
+    public void testExtract() {
+        HydrationPlan<Person> plan = HydrationPlan.of(Person.class, "birth", "id");
+        Object[] row = plan.extract(new Person(7, "Seven", new DateTime(7000)), null);
+        assertEquals(new Timestamp(7000), row[0]);
+        assertEquals(Timestamp.class, row[0].getClass());
+        assertEquals(7, row[1]);
+        Object[] reuse = new Object[2];
+        assertSame(reuse, plan.extract(new Person(), reuse));
+        assertNull(reuse[0]);
+    }
+
+    public void testNulls() {
+        HydrationPlan<Person> plan = HydrationPlan.of(Person.class, "id", "name", "birth");
+        Person person = new Person(3, "Three", new DateTime(3000));
+        plan.hydrate(new Object[]{null, null, null}, person);
+        assertEquals(3, person.getId());
+        assertNull(person.getName());
+        assertNull(person.getBirth());
+    }
+
+    public void testCached() {
+        assertSame(HydrationPlan.of(Person.class, "id", "name"), HydrationPlan.of(Person.class,
+                "id", "name"));
+        assertNotSame(HydrationPlan.of(Person.class, "id", "name"), HydrationPlan.of(
+                Person.class, "name", "id"));
+    }
+
+    public void testAdaptor() {
+        Map<String, BindingAdaptor<?, ?>> adaptors = new HashMap<String, BindingAdaptor<?, ?>>();
+        adaptors.put("name", new UpperCaseAdaptor());
+        HydrationPlan<Person> plan = new HydrationPlan<Person>(Person.class, new String[]{"id",
+                "name"}, adaptors);
+        Person person = plan.hydrate(new Object[]{1, "ONE"});
+        assertEquals("one", person.getName());
+        assertEquals("ONE", plan.extract(person, null)[1]);
+        adaptors.put("name", EnumAdaptor.byCode(Size.class, "S", "L"));
+        plan = new HydrationPlan<Person>(Person.class, new String[]{"name"}, adaptors);
+        try {
+            plan.hydrate(new Object[]{"M"});
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("No Size has code 'M'.", ex.getMessage());
+        }
+    }
+
+    public void testNullsAdapted() {
+        Map<String, BindingAdaptor<?, ?>> adaptors = new HashMap<String, BindingAdaptor<?, ?>>();
+        adaptors.put("name", new NullCodeAdaptor());
+        HydrationPlan<Person> plan = new HydrationPlan<Person>(Person.class, new String[]{"id",
+                "name"}, adaptors);
+        assertEquals("N", plan.extract(new Person(), null)[1]);
+        assertNull(plan.hydrate(new Object[]{1, "N"}).getName());
+        assertEquals("(unnamed)", plan.hydrate(new Object[]{1, null}).getName());
+    }
+
+    public void testUnknownProperty() {
+        try {
+            HydrationPlan.of(Person.class, "id", "shoeSize");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("shoeSize"));
+        }
+    }
+
+    private enum Size {
+        SMALL, LARGE
+    }
+
+    /**
+     * Stores a null name as "N", and reads a missing name as "(unnamed)".
+     */
+    private static class NullCodeAdaptor extends UpperCaseAdaptor {
+
+        @Override
+        public String toInbound(String value) {
+            return value == null ? "(unnamed)" : "N".equals(value) ? null : value;
+        }
+
+        @Override
+        public String toOutbound(String value) {
+            return value == null ? "N" : value;
+        }
+    }
+
+    private static class UpperCaseAdaptor extends BindingAdaptor<String, String> {
+
+        public Class<String> inboundType() {
+            return String.class;
+        }
+
+        public Class<String> outboundType() {
+            return String.class;
+        }
+
+        public Binding<String> inbound(Binding<String> obj) {
+            throw new UnsupportedOperationException("Values are translated directly.");
+        }
+
+        public Binding<String> outbound(Binding<String> obj) {
+            throw new UnsupportedOperationException("Values are translated directly.");
+        }
+
+        @Override
+        public String toInbound(String value) {
+            return value.toLowerCase();
+        }
+
+        @Override
+        public String toOutbound(String value) {
+            return value.toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.pojava.transformation;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.examples.Person;
+
+public class TupleCodecTester extends TestCase {
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    public void testDefaultLayout() {
+        TupleCodec<Person> codec = new TupleCodec<Person>(Person.class);
+        assertEquals(3, codec.width());
+        assertEquals("birth", codec.getLayout().getName(0));
+        assertEquals("id", codec.getLayout().getName(1));
+        assertEquals("name", codec.getLayout().getName(2));
+    }
+
+    public void testRoundTrip() {
+        TupleCodec<Person> codec = new TupleCodec<Person>(Person.class, "id", "name", "birth");
+        Person person = new Person(7, "Seven", new DateTime(7000));
+        Object[] tuple = codec.toTuple(person, null);
+        assertEquals(7, tuple[0]);
+        assertEquals("Seven", tuple[1]);
+        assertEquals(new DateTime(7000), tuple[2]);
+        Person copy = codec.fromTuple(tuple);
+        assertEquals(7, copy.getId());
+        assertEquals("Seven", copy.getName());
+        assertEquals(new DateTime(7000), copy.getBirth());
+    }
+
+    public void testReuse() {
+        TupleCodec<Person> codec = new TupleCodec<Person>(Person.class, "id", "name");
+        Object[] buffer = new Object[2];
+        assertSame(buffer, codec.toTuple(new Person(1, "one", null), buffer));
+        assertEquals("one", buffer[1]);
+        assertSame(buffer, codec.toTuple(new Person(2, "two", null), buffer));
+        assertEquals("two", buffer[1]);
+        assertNotSame(buffer, codec.toTuple(new Person(3, "three", null), new Object[1]));
+    }
+
+    public void testBatch() {
+        TupleCodec<Person> codec = new TupleCodec<Person>(Person.class, "id", "name");
+        Person[] people = {new Person(1, "one", null), new Person(2, "two", null)};
+        Object[][] tuples = codec.toTuples(people, null);
+        assertEquals(2, tuples.length);
+        assertEquals(2, tuples[1][0]);
+        Person[] copies = codec.fromTuples(tuples, new Person[2]);
+        assertEquals("one", copies[0].getName());
+        assertEquals(2, copies[1].getId());
+    }
+
+    public void testUnknownProperty() {
+        try {
+            new TupleCodec<Person>(Person.class, "id", "shoeSize");
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("shoeSize"));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.pojava.util;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.transformation.BooleanYNAdaptor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Date;
+
+public class ConversionServiceTester extends TestCase {
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    public void testStringToPrimitives() {
+        ConversionService service = new ConversionService();
+        assertEquals(42, service.convert("42", int.class));
+        assertEquals(-7L, service.convert(" -7 ", Long.class));
+        assertEquals((short) 3, service.convert("3", short.class));
+        assertEquals(2.5, service.convert("2.5", double.class));
+        assertEquals(Boolean.TRUE, service.convert("Y", boolean.class));
+        assertEquals('x', service.convert("xyz", char.class));
+        assertEquals(new BigDecimal("1.10"), service.convert("1.10", BigDecimal.class));
+    }
+
+    public void testNumbers() {
+        ConversionService service = new ConversionService();
+        assertEquals(3L, service.convert(3, long.class));
+        assertEquals(3, service.convert(3.0, int.class));
+        assertEquals((byte) -128, service.convert(-128L, byte.class));
+        assertEquals(Long.MIN_VALUE, service.convert(new BigDecimal("-9223372036854775808.00"),
+                long.class));
+        assertEquals(Boolean.TRUE, service.convert(1, Boolean.class));
+        assertEquals(0, service.convert(false, Integer.class));
+    }
+
+    public void testLossyNumbers() {
+        ConversionService service = new ConversionService();
+        Object[][] lossy = {{3.9, int.class}, {3000000000L, Integer.class}, {128, byte.class},
+                {-32769, Short.class}, {1e19, long.class}, {Double.NaN, int.class},
+                {Float.POSITIVE_INFINITY, long.class}, {new BigDecimal("0.5"), int.class},
+                {new BigInteger("9223372036854775808"), long.class},
+                {2.5, BigInteger.class}, {new BigDecimal("1e30").add(
+                new BigDecimal("0.1")), BigInteger.class},
+                {Double.NaN, BigDecimal.class}, {Double.NEGATIVE_INFINITY, BigDecimal.class},
+                {Float.NaN, BigInteger.class}};
+        for (Object[] pair : lossy) {
+            try {
+                service.convert(pair[0], (Class<?>) pair[1]);
+                fail("Expecting IllegalArgumentException for " + pair[0] + ".");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().endsWith("without loss."));
+            }
+        }
+        assertEquals(new BigInteger("1000000000000000000000000000000"),
+                service.convert(1e30, BigInteger.class));
+        assertEquals(new BigInteger("12345678901234567890"), service.convert(
+                new BigDecimal("12345678901234567890.000"), BigInteger.class));
+        assertEquals(new BigDecimal("2.5"), service.convert(2.5f, BigDecimal.class));
+    }
+
+    public void testBooleans() {
+        ConversionService service = new ConversionService();
+        String[] yes = {"true", " Yes", "ON", "t", "y", "1"};
+        for (String str : yes) {
+            assertEquals(str, Boolean.TRUE, service.convert(str, boolean.class));
+        }
+        String[] no = {"FALSE", "no ", "off", "F", "n", "0"};
+        for (String str : no) {
+            assertEquals(str, Boolean.FALSE, service.convert(str, Boolean.class));
+        }
+        String[] unknown = {"", "maybe", "tru", "2"};
+        for (String str : unknown) {
+            try {
+                service.convert(str, Boolean.class);
+                fail("Expecting IllegalArgumentException for '" + str + "'.");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testDates() {
+        ConversionService service = new ConversionService();
+        assertEquals(new DateTime(1000), service.convert(new Timestamp(1000), DateTime.class));
+        assertEquals(new Timestamp(2000), service.convert(new DateTime(2000), Timestamp.class));
+        assertEquals(new Date(3000), service.convert(3000L, Date.class));
+        assertEquals(4000L, service.convert(new Date(4000), long.class));
+        assertEquals(new DateTime("2001-02-03"), service.convert("2001-02-03", DateTime.class));
+    }
+
+    public void testStringAndEnum() {
+        ConversionService service = new ConversionService();
+        assertEquals("12", service.convert(12, String.class));
+        assertEquals(HashingAlgorithm.SHA_256, service.convert("SHA_256", HashingAlgorithm.class));
+    }
+
+    public void testPassThroughAndMissing() {
+        ConversionService service = new ConversionService();
+        Object obj = new Object();
+        assertSame(obj, service.convert(obj, Object.class));
+        assertNull(service.convert(null, int.class));
+        assertNull(service.resolve(Object.class, Integer.class));
+        try {
+            service.convert(new Object(), Integer.class);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().startsWith("No conversion"));
+        }
+    }
+
+    public void testRegisterAndCache() {
+        ConversionService service = new ConversionService();
+        Converter upper = new Converter() {
+            public Object convert(Object value) {
+                return value.toString().toUpperCase();
+            }
+        };
+        service.register(CharSequence.class, String.class, upper);
+        assertEquals("ABC", service.convert(new StringBuilder("abc"), String.class));
+        assertSame(service.resolve(StringBuilder.class, String.class), service.resolve(
+                StringBuilder.class, String.class));
+        new BooleanYNAdaptor().registerWith(service);
+        assertEquals("N", service.convert(Boolean.FALSE, String.class));
+    }
+}
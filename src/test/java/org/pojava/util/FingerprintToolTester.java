@@ -0,0 +1,125 @@
+package org.pojava.util;
+
+import junit.framework.TestCase;
+import org.pojava.datetime.DateTime;
+import org.pojava.datetime.DateTimeConfig;
+import org.pojava.examples.People;
+import org.pojava.examples.Person;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class FingerprintToolTester extends TestCase {
+
+    @Override
+    public void setUp() {
+        DateTimeConfig.setGlobalDefault(null);
+    }
+
+    private People newPeople() {
+        People people = new People();
+        people.setLeader(new Person(1, "one", new DateTime(1000)));
+        people.addPerson(new Person(2, "two", new DateTime(2000)));
+        people.addPerson(new Person(3, "three", null));
+        return people;
+    }
+
+    public void testStableAcrossInstances() {
+        assertEquals(FingerprintTool.fingerprint64(newPeople()), FingerprintTool
+                .fingerprint64(newPeople()));
+        assertEquals(FingerprintTool.fingerprintHex(newPeople(), HashingAlgorithm.SHA_256),
+                FingerprintTool.fingerprintHex(newPeople(), HashingAlgorithm.SHA_256));
+        assertEquals(16, FingerprintTool.fingerprint(newPeople(), HashingAlgorithm.MD5).length);
+    }
+
+    public void testSensitiveToContent() {
+        People changed = newPeople();
+        changed.getPeople().get(1).setName("Three");
+        assertTrue(FingerprintTool.fingerprint64(newPeople()) != FingerprintTool
+                .fingerprint64(changed));
+        People reordered = new People();
+        reordered.setLeader(new Person(1, "one", new DateTime(1000)));
+        reordered.addPerson(new Person(3, "three", null));
+        reordered.addPerson(new Person(2, "two", new DateTime(2000)));
+        assertTrue(FingerprintTool.fingerprint64(newPeople()) != FingerprintTool
+                .fingerprint64(reordered));
+    }
+
+    public void testUnorderedCollections() {
+        Map<String, Integer> forward = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> backward = new HashMap<String, Integer>();
+        Set<String> set = new HashSet<String>();
+        for (int i = 0; i < 20; i++) {
+            forward.put("k" + i, i);
+            backward.put("k" + (19 - i), 19 - i);
+            set.add("k" + i);
+        }
+        assertEquals(FingerprintTool.fingerprint64(forward), FingerprintTool
+                .fingerprint64(backward));
+        assertTrue(FingerprintTool.fingerprint64(forward) != FingerprintTool
+                .fingerprint64(set));
+    }
+
+    public void testDistinguishesTypes() {
+        assertTrue(FingerprintTool.fingerprint64("1") != FingerprintTool.fingerprint64(1));
+        assertTrue(FingerprintTool.fingerprint64(null) != FingerprintTool.fingerprint64(""));
+        assertEquals(FingerprintTool.fingerprint64(1), FingerprintTool.fingerprint64(1L));
+    }
+
+    public void testUnorderedDigest() {
+        Set<Object> forward = new LinkedHashSet<Object>();
+        Set<Object> backward = new LinkedHashSet<Object>();
+        for (int i = 0; i < 20; i++) {
+            forward.add("k" + i);
+            backward.add("k" + (19 - i));
+        }
+        Map<String, Object> inner = new LinkedHashMap<String, Object>();
+        inner.put("a", 1);
+        inner.put("b", 2);
+        forward.add(inner);
+        Map<String, Object> reversed = new LinkedHashMap<String, Object>();
+        reversed.put("b", 2);
+        reversed.put("a", 1);
+        backward.add(reversed);
+        assertEquals(FingerprintTool.fingerprintHex(forward, HashingAlgorithm.SHA_256),
+                FingerprintTool.fingerprintHex(backward, HashingAlgorithm.SHA_256));
+        // Keys and values stay paired within each entry.
+        reversed.put("b", 1);
+        reversed.put("a", 2);
+        assertFalse(FingerprintTool.fingerprintHex(forward, HashingAlgorithm.SHA_256).equals(
+                FingerprintTool.fingerprintHex(backward, HashingAlgorithm.SHA_256)));
+    }
+
+    public void testCyclicCollections() {
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        list.add(list);
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("self", map);
+        map.put("list", list);
+        assertEquals(FingerprintTool.fingerprint64(list), FingerprintTool.fingerprint64(list));
+        assertEquals(FingerprintTool.fingerprintHex(map, HashingAlgorithm.SHA_256),
+                FingerprintTool.fingerprintHex(map, HashingAlgorithm.SHA_256));
+        Object[] array = new Object[1];
+        array[0] = array;
+        assertTrue(FingerprintTool.fingerprint64(array) != FingerprintTool.fingerprint64(
+                new Object[]{null}));
+    }
+
+    public void testDateTags() {
+        // A Date and a Timestamp encode to different lengths, so they need different tags.
+        assertTrue(FingerprintTool.fingerprint64(new Date(1000)) != FingerprintTool
+                .fingerprint64(new Timestamp(1000)));
+        assertTrue(FingerprintTool.fingerprint64(Arrays.asList(new Date(1000), 0L))
+                != FingerprintTool.fingerprint64(Arrays.asList(new Timestamp(1000), 0L)));
+    }
+}
@@ -55,6 +55,19 @@ public class HashingToolTester extends TestCase {
         assertEquals(sha256Hash, asString);
     }
 
+    public void testMix() {
+        assertEquals(0, HashingTool.mix(0));
+        assertEquals(0x514e28b7, HashingTool.mix(1));
+        // Consecutive keys spread evenly across buckets chosen by low bits.
+        int[] buckets = new int[8];
+        for (int i = 0; i < 8000; i++) {
+            buckets[HashingTool.mix(i) & 7]++;
+        }
+        for (int bucket : buckets) {
+            assertTrue(bucket > 800 && bucket < 1200);
+        }
+    }
+
     /*
      * // This test did not pass. // Example taken from
      * http://csrc.nist.gov/groups/ST/toolkit/documents/Examples/SHA384.pdf public void
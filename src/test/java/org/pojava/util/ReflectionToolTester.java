@@ -6,6 +6,7 @@ import org.pojava.datetime.DateTimeConfig;
 import org.pojava.examples.People;
 import org.pojava.examples.Person;
 import org.pojava.lang.Accessors;
+import org.pojava.lang.PropertyLayout;
 
 import java.lang.reflect.Method;
 import java.util.*;
@@ -68,6 +69,16 @@ public class ReflectionToolTester extends TestCase {
         assertTrue(propMap.get("red.herring") == null);
     }
 
+    public void testPropertyLayout() {
+        PropertyLayout layout = ReflectionTool.propertyLayout(Person.class);
+        assertSame(layout, ReflectionTool.propertyLayout(Person.class));
+        assertEquals(3, layout.size());
+        assertEquals(1, layout.indexOf("id"));
+        assertEquals(int.class, layout.getPropertyType(1));
+        assertEquals("setName", layout.getSetter(layout.indexOf("name")).getName());
+        assertEquals(-1, layout.indexOf("red.herring"));
+    }
+
     public void testSetNestedValue() throws Exception {
         DateTime testDate = new DateTime(123);
         Person person = newPerson(1);
@@ -218,5 +229,44 @@ public class ReflectionToolTester extends TestCase {
         assertEquals("1973-03-09", ray.getBirth().toString("yyyy-MM-dd"));
     }
 
+    public void testPopulateFromMapConverts() throws Exception {
+        Person ray = new Person();
+        Accessors accessors = ReflectionTool.accessors(Person.class);
+        Map<String, Object> propertyData = new HashMap<String, Object>();
+        propertyData.put("id", "42");
+        propertyData.put("birth", new Date(DateTime.parse("1973-03-09").toMillis()));
+        ReflectionTool.populateFromMap(ray, propertyData, accessors.getSetters());
+        assertEquals(42, ray.getId());
+        assertEquals("1973-03-09", ray.getBirth().toString("yyyy-MM-dd"));
+    }
+
+    public void testPopulateFromLayout() throws Exception {
+        Map<String, Object> propertyData = new HashMap<String, Object>();
+        propertyData.put("id", 7L);
+        propertyData.put("name", null);
+        PropertyLayout layout = ReflectionTool.propertyLayout(Person.class);
+        Person ray = new Person(1, "Ray", null);
+        ReflectionTool.populateFromMap(ray, propertyData, layout);
+        assertEquals(7, ray.getId());
+        assertNull(ray.getName());
+        propertyData.put("id", 7.5);
+        try {
+            ReflectionTool.populateFromMap(ray, propertyData, layout);
+            fail("Expecting IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Cannot convert 7.5 to Integer without loss.", ex.getMessage());
+        }
+    }
+
+    public void testSetNestedValueConverts() throws Exception {
+        People people = new People();
+        people.setLeader(newPerson(1));
+        ReflectionTool.setNestedValue("leader.id", people, " 17 ");
+        assertEquals(17, people.getLeader().getId());
+        Method[] getters = ReflectionTool.getterMethodDrilldown(People.class, "leader.id");
+        Method[] setters = ReflectionTool.setterMethodDrilldown(getters);
+        ReflectionTool.setNestedValue(getters, setters, people, 18L);
+        assertEquals(18, people.getLeader().getId());
+    }
 
 }
@@ -122,4 +122,32 @@ public class StringToolTester extends TestCase {
         assertEquals("dir", cmd[0]);
         assertEquals("poj-`date +%d`.log", cmd[1]);
     }
+
+    public void testParseLong() {
+        assertEquals(42, StringTool.parseLong("42"));
+        assertEquals(-42, StringTool.parseLong(" -42\t"));
+        assertEquals(42, StringTool.parseLong("+42"));
+        assertEquals(Long.MAX_VALUE, StringTool.parseLong("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, StringTool.parseLong("-9223372036854775808"));
+        String[] invalid = {"", " ", "-", "4 2", "4x", "9223372036854775808",
+                "-9223372036854775809"};
+        for (String str : invalid) {
+            try {
+                StringTool.parseLong(str);
+                fail("Expecting NumberFormatException for '" + str + "'.");
+            } catch (NumberFormatException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testParseInt() {
+        assertEquals(Integer.MIN_VALUE, StringTool.parseInt("-2147483648"));
+        try {
+            StringTool.parseInt("2147483648");
+            fail("Expecting NumberFormatException.");
+        } catch (NumberFormatException ex) {
+            // expected
+        }
+    }
 }